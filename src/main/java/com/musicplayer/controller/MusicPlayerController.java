@@ -3,6 +3,7 @@ package com.musicplayer.controller;
 import com.musicplayer.model.Recommendation;
 import com.musicplayer.model.Track;
 import com.musicplayer.repository.DatabaseManager;
+import com.musicplayer.repository.PlayEventJournal;
 import com.musicplayer.service.*;
 import com.musicplayer.view.NowPlayingPanel;
 
@@ -15,12 +16,15 @@ import java.util.List;
 
 public class MusicPlayerController {
     private DatabaseManager dbManager;
+    private PlayEventJournal playJournal;
     private YouTubeMusicService youtubeService;
     private AudioFingerprintService fingerprintService;
     private AudioRecordingService recordingService;
     private RecommendationService recommendationService;
     private AudioPlayerService audioPlayerService;
     private MetadataEnrichmentService enrichmentService;
+    private RadioService radioService;
+    private RecommendationScheduler recommendationScheduler;
 
     private NowPlayingPanel nowPlayingPanel;
     private File tempRecordingFile;
@@ -29,14 +33,19 @@ public class MusicPlayerController {
         System.out.println("🔧 Initializing MusicPlayerController...");
 
         this.dbManager = DatabaseManager.getInstance();
+        this.playJournal = new PlayEventJournal(dbManager);
         this.youtubeService = new YouTubeMusicService();
         this.fingerprintService = new AudioFingerprintService();
         this.recordingService = new AudioRecordingService();
         this.recommendationService = new RecommendationService();
-        this.audioPlayerService = new AudioPlayerService();
+        this.audioPlayerService = new AudioPlayerService(youtubeService);
         this.enrichmentService = new MetadataEnrichmentService();
+        this.radioService = new RadioService(recommendationService);
+        this.recommendationScheduler = new RecommendationScheduler(recommendationService, dbManager);
 
         setupPlayerListeners();
+        audioPlayerService.setContinuationProvider(recommendationService::suggestNextTrack);
+        audioPlayerService.setRadioService(radioService);
 
         System.out.println("✅ MusicPlayerController initialized");
     }
@@ -59,12 +68,9 @@ public class MusicPlayerController {
                 }
 
                 if (track != null) {
-                    try {
-                        dbManager.recordPlay(track.getId());
-                        System.out.println("📊 Play recorded for: " + track.getTitle());
-                    } catch (SQLException e) {
-                        e.printStackTrace();
-                    }
+                    // Write-behind: insert ke H2 jalan di background, EDT ga ke-block
+                    playJournal.record(track.getId());
+                    System.out.println("📊 Play queued for: " + track.getTitle());
                 }
             }
 
@@ -118,22 +124,22 @@ public class MusicPlayerController {
             // 2. Save basic info to database
             System.out.println("💾 Saving tracks to database...");
             for (Track track : tracks) {
-                try {
-                    // Set default metadata
-                    if (track.getGenre() == null || track.getGenre().isEmpty()) {
-                        track.setGenre("Music");
-                    }
-                    if (track.getMood() == null || track.getMood().isEmpty()) {
-                        track.setMood("Neutral");
-                    }
-                    if (track.getBpm() <= 0) {
-                        track.setBpm(120);
-                    }
-
-                    dbManager.saveTrack(track);
-                } catch (SQLException e) {
-                    System.err.println("⚠️ Failed to save track: " + e.getMessage());
+                // Set default metadata
+                if (track.getGenre() == null || track.getGenre().isEmpty()) {
+                    track.setGenre("Music");
                 }
+                if (track.getMood() == null || track.getMood().isEmpty()) {
+                    track.setMood("Neutral");
+                }
+                if (track.getBpm() <= 0) {
+                    track.setBpm(120);
+                }
+            }
+
+            try {
+                dbManager.saveTracks(tracks);
+            } catch (SQLException e) {
+                System.err.println("⚠️ Failed to save tracks: " + e.getMessage());
             }
 
             // 3. Enrich metadata in background (non-blocking)
@@ -159,12 +165,7 @@ public class MusicPlayerController {
 
     public Track stopRecordingAndIdentify() throws Exception {
         tempRecordingFile = recordingService.stopRecording("temp_recording.wav");
-        Track track = fingerprintService.identifyTrack(tempRecordingFile);
-
-        if (track != null) {
-            // Enrich metadata synchronously for identified tracks
-            enrichmentService.enrichTrackSync(track);
-        }
+        Track track = resolveIdentified(fingerprintService.identifyTrack(tempRecordingFile));
 
         if (tempRecordingFile != null && tempRecordingFile.exists()) {
             tempRecordingFile.delete();
@@ -174,12 +175,29 @@ public class MusicPlayerController {
     }
 
     public Track identifyTrack(File audioFile) throws Exception {
-        Track track = fingerprintService.identifyTrack(audioFile);
+        return resolveIdentified(fingerprintService.identifyTrack(audioFile));
+    }
 
-        if (track != null) {
-            enrichmentService.enrichTrackSync(track);
+    /**
+     * Hasil fingerprint id-nya slug artist_title. Kalau lagunya udah ada di library,
+     * pakai track kanonik (udah ada videoId & metadata); kalau belum, enrich dulu.
+     */
+    private Track resolveIdentified(Track track) {
+        if (track == null) {
+            return null;
+        }
+        try {
+            Track known = dbManager.findCanonicalTrack(track.getArtist(), track.getTitle());
+            if (known != null) {
+                System.out.println("🔗 Identified track already in library: " + known.getId());
+                return known;
+            }
+        } catch (SQLException e) {
+            System.err.println("⚠️ Canonical lookup failed: " + e.getMessage());
         }
 
+        // Enrich metadata synchronously for identified tracks
+        enrichmentService.enrichTrackSync(track);
         return track;
     }
 
@@ -193,38 +211,24 @@ public class MusicPlayerController {
 
     // ========== Recommendation Operations ==========
 
-    public List<Recommendation> generateDailyMix(int limit) {
-        try {
-            System.out.println("🎵 Generating Daily Mix (" + limit + " tracks)...");
-            List<Recommendation> mix = recommendationService.generateDailyMix(limit);
-            System.out.println("✅ Daily Mix generated: " + mix.size() + " tracks");
-            return mix;
-        } catch (SQLException e) {
-            System.err.println("❌ Failed to generate Daily Mix: " + e.getMessage());
-            e.printStackTrace();
-            return new ArrayList<>();
-        }
+    /**
+     * Snapshot rekomendasi terakhir (precompute background), null kalau belum ada
+     */
+    public RecommendationScheduler.Snapshot getRecommendationSnapshot() {
+        return recommendationScheduler.getSnapshot();
     }
 
-    public List<Recommendation> getSimilarTracks(Track track, int limit) {
-        try {
-            return recommendationService.getSimilarTracks(track, limit);
-        } catch (SQLException e) {
-            e.printStackTrace();
-            return new ArrayList<>();
-        }
+    public void refreshRecommendations() {
+        recommendationScheduler.refreshNow();
     }
 
-    public List<Recommendation> getSimilarToRecent(int limit) {
-        try {
-            List<Track> recentTracks = dbManager.getMostPlayedTracks(1);
-            if (recentTracks.isEmpty()) {
-                System.out.println("⚠️ No play history for similar songs");
-                return new ArrayList<>();
-            }
+    public void addRecommendationListener(RecommendationScheduler.SnapshotListener listener) {
+        recommendationScheduler.addSnapshotListener(listener);
+    }
 
-            System.out.println("🔍 Finding songs similar to: " + recentTracks.get(0).getTitle());
-            return recommendationService.getSimilarTracks(recentTracks.get(0), limit);
+    public List<Recommendation> getSimilarTracks(Track track, int limit) {
+        try {
+            return recommendationService.getSimilarTracks(track, limit);
         } catch (SQLException e) {
             e.printStackTrace();
             return new ArrayList<>();
@@ -278,6 +282,14 @@ public class MusicPlayerController {
         audioPlayerService.toggleRepeat();
     }
 
+    public void toggleRadio() {
+        audioPlayerService.toggleRadio();
+    }
+
+    public boolean isRadioEnabled() {
+        return audioPlayerService.isRadio();
+    }
+
     public boolean isPlayerPlaying() {
         return audioPlayerService.isPlaying();
     }
@@ -311,10 +323,40 @@ public class MusicPlayerController {
         }
     }
 
+    // ========== Maintenance ==========
+
+    /**
+     * Cek track_stats terhadap play_history, rebuild kalau ga sinkron.
+     * Return jumlah track yang tadinya ga cocok (-1 kalau gagal).
+     */
+    public int verifyPlayStats() {
+        try {
+            return dbManager.verifyTrackStats(true);
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return -1;
+        }
+    }
+
+    public void rebuildPlayStats() {
+        try {
+            dbManager.rebuildTrackStats();
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+
     public void shutdown() {
         System.out.println("🛑 Shutting down controller...");
         enrichmentService.shutdown();
+        recommendationScheduler.shutdown();
+        radioService.shutdown();
+        recommendationService.shutdown();
         audioPlayerService.release();
+        YtDlpWorkerPool.getInstance().shutdown();
+        playJournal.shutdown();
+        StreamUrlCache.getInstance().shutdown();
+        System.out.println("📊 Stream URL cache stats: " + StreamUrlCache.getInstance());
         dbManager.close();
         System.out.println("✅ Controller shutdown complete");
     }
@@ -0,0 +1,23 @@
+package com.musicplayer.model;
+
+// Model buat tetangga terdekat satu track (hasil precompute similarity)
+public class TrackNeighbor {
+    private String trackId;
+    private String neighborId;
+    private double similarity;
+
+    public TrackNeighbor(String trackId, String neighborId, double similarity) {
+        this.trackId = trackId;
+        this.neighborId = neighborId;
+        this.similarity = similarity;
+    }
+
+    public String getTrackId() { return trackId; }
+    public void setTrackId(String trackId) { this.trackId = trackId; }
+
+    public String getNeighborId() { return neighborId; }
+    public void setNeighborId(String neighborId) { this.neighborId = neighborId; }
+
+    public double getSimilarity() { return similarity; }
+    public void setSimilarity(double similarity) { this.similarity = similarity; }
+}
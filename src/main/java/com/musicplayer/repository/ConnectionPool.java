@@ -0,0 +1,238 @@
+package com.musicplayer.repository;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pool koneksi JDBC (bounded) buat DatabaseManager.
+ * Checkout per-thread: nested call di thread yang sama dapet koneksi yang sama,
+ * jadi method DatabaseManager bisa saling panggil tanpa ngabisin pool.
+ * Koneksi yang di-return ke caller itu proxy, close() = balikin ke pool.
+ */
+public class ConnectionPool {
+
+    private final String url;
+    private final String username;
+    private final String password;
+    private final int maxSize;
+    private final long timeoutMillis;
+
+    private final BlockingQueue<Connection> idle;
+    private final List<Connection> all = new ArrayList<>();
+    private final ThreadLocal<Lease> leases = new ThreadLocal<>();
+    private volatile boolean closed = false;
+
+    // Metrics
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicLong checkouts = new AtomicLong();
+    private final AtomicLong waits = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final AtomicInteger peakActive = new AtomicInteger();
+
+    public ConnectionPool(String url, String username, String password, int maxSize, long timeoutMillis) {
+        this.url = url;
+        this.username = username;
+        this.password = password;
+        this.maxSize = Math.max(1, maxSize);
+        this.timeoutMillis = timeoutMillis;
+        this.idle = new ArrayBlockingQueue<>(this.maxSize);
+    }
+
+    /**
+     * Ambil koneksi. Wajib di-close (try-with-resources) biar balik ke pool.
+     */
+    public Connection getConnection() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool is closed");
+        }
+
+        Lease lease = leases.get();
+        if (lease != null && !lease.released) {
+            lease.depth++;
+            return lease.proxy;
+        }
+
+        long start = System.nanoTime();
+        Connection raw = acquire();
+        long waited = System.nanoTime() - start;
+
+        checkouts.incrementAndGet();
+        totalWaitNanos.addAndGet(waited);
+        maxWaitNanos.accumulateAndGet(waited, Math::max);
+        peakActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+
+        lease = new Lease(raw);
+        leases.set(lease);
+        return lease.proxy;
+    }
+
+    private Connection acquire() throws SQLException {
+        Connection conn = idle.poll();
+
+        if (conn == null) {
+            conn = createIfAllowed();
+        }
+
+        if (conn == null) {
+            waits.incrementAndGet();
+            try {
+                conn = idle.poll(timeoutMillis, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLException("Interrupted while waiting for a database connection", e);
+            }
+            if (conn == null) {
+                timeouts.incrementAndGet();
+                throw new SQLException("Timed out after " + timeoutMillis + " ms waiting for a database connection");
+            }
+        }
+
+        // Koneksi mati (misal DB di-restart) diganti yang baru
+        if (!isUsable(conn)) {
+            discard(conn);
+            Connection replacement = createIfAllowed();
+            if (replacement == null) {
+                throw new SQLException("Could not replace broken database connection");
+            }
+            return replacement;
+        }
+        return conn;
+    }
+
+    private Connection createIfAllowed() throws SQLException {
+        synchronized (all) {
+            if (all.size() >= maxSize) {
+                return null;
+            }
+            Connection conn = DriverManager.getConnection(url, username, password);
+            all.add(conn);
+            return conn;
+        }
+    }
+
+    private boolean isUsable(Connection conn) {
+        try {
+            return !conn.isClosed() && conn.isValid(1);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private void discard(Connection conn) {
+        synchronized (all) {
+            all.remove(conn);
+        }
+        try {
+            conn.close();
+        } catch (SQLException ignored) {
+        }
+    }
+
+    private void release(Lease lease) {
+        if (lease.released || --lease.depth > 0) {
+            return;
+        }
+        lease.released = true;
+        if (leases.get() == lease) {
+            leases.remove();
+        }
+        active.decrementAndGet();
+
+        Connection raw = lease.raw;
+        try {
+            // Transaksi yang ketinggalan di-rollback biar ga bocor ke pemakai berikutnya
+            if (!raw.getAutoCommit()) {
+                raw.rollback();
+                raw.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            discard(raw);
+            return;
+        }
+
+        if (closed || !idle.offer(raw)) {
+            discard(raw);
+        }
+    }
+
+    public void close() {
+        closed = true;
+        Connection conn;
+        while ((conn = idle.poll()) != null) {
+            discard(conn);
+        }
+    }
+
+    // ========== Metrics ==========
+
+    public int getMaxSize() { return maxSize; }
+    public int getActiveCount() { return active.get(); }
+    public int getIdleCount() { return idle.size(); }
+    public int getPeakActiveCount() { return peakActive.get(); }
+    public long getCheckoutCount() { return checkouts.get(); }
+    public long getWaitCount() { return waits.get(); }
+    public long getTimeoutCount() { return timeouts.get(); }
+
+    public double getAverageWaitMillis() {
+        long count = checkouts.get();
+        return count == 0 ? 0.0 : totalWaitNanos.get() / 1_000_000.0 / count;
+    }
+
+    public double getMaxWaitMillis() {
+        return maxWaitNanos.get() / 1_000_000.0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("active=%d/%d, idle=%d, peak=%d, checkouts=%d, waits=%d, timeouts=%d, avgWait=%.2fms, maxWait=%.2fms",
+                getActiveCount(), maxSize, getIdleCount(), getPeakActiveCount(), getCheckoutCount(),
+                getWaitCount(), getTimeoutCount(), getAverageWaitMillis(), getMaxWaitMillis());
+    }
+
+    /**
+     * Satu checkout aktif milik satu thread
+     */
+    private class Lease {
+        final Connection raw;
+        final Connection proxy;
+        int depth = 1;
+        volatile boolean released = false;
+
+        Lease(Connection raw) {
+            this.raw = raw;
+            this.proxy = (Connection) Proxy.newProxyInstance(
+                    Connection.class.getClassLoader(),
+                    new Class<?>[]{Connection.class},
+                    (p, method, args) -> {
+                        switch (method.getName()) {
+                            case "close":
+                                release(this);
+                                return null;
+                            case "isClosed":
+                                return released || raw.isClosed();
+                            default:
+                                if (released) {
+                                    throw new SQLException("Connection already returned to pool");
+                                }
+                                try {
+                                    return method.invoke(raw, args);
+                                } catch (InvocationTargetException e) {
+                                    throw e.getCause();
+                                }
+                        }
+                    });
+        }
+    }
+}
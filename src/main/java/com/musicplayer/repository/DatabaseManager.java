@@ -2,10 +2,30 @@ package com.musicplayer.repository;
 
 import com.musicplayer.model.Track;
 import com.musicplayer.model.PlayHistory;
+import com.musicplayer.model.Recommendation;
+import com.musicplayer.model.TrackNeighbor;
+import com.musicplayer.util.ConfigLoader;
+import com.musicplayer.util.TrackNormalizer;
 import java.sql.*;
 import java.time.LocalDateTime;
+import java.time.ZoneOffset;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 
 // Manager database lokal H2, simpen tracks, play history, preferences
@@ -13,12 +33,26 @@ public class DatabaseManager {
     private static final String DB_URL = "jdbc:h2:./data/musicplayer;AUTO_SERVER=TRUE";
 
     private static DatabaseManager instance;
-    private Connection connection;
+    private final ConnectionPool pool;
+    private final int fetchSize;
+    private final TrackCache trackCache;
+    private final List<DataChangeListener> listeners = new CopyOnWriteArrayList<>();
 
     private DatabaseManager() {
+        int poolSize = ConfigLoader.getInt("db.pool.size", 4);
+        int timeoutSeconds = ConfigLoader.getInt("db.pool.timeout.seconds", 10);
+        pool = new ConnectionPool(DB_URL, "as", "", poolSize, timeoutSeconds * 1000L);
+        fetchSize = ConfigLoader.getInt("db.fetch.size", 200);
+        trackCache = new TrackCache(
+                ConfigLoader.getBoolean("cache.enabled", true),
+                ConfigLoader.getInt("cache.max.size", 100),
+                ConfigLoader.getInt("cache.ttl.minutes", 60) * 60_000L);
+
         try {
-            connection = DriverManager.getConnection(DB_URL, "as", "");
             initializeTables();
+            if (ConfigLoader.getBoolean("db.stats.verify.on.startup", false)) {
+                verifyTrackStats(true);
+            }
         } catch (SQLException e) {
             e.printStackTrace();
         }
@@ -33,138 +67,1197 @@ public class DatabaseManager {
 
 
     private void initializeTables() throws SQLException {
-        String createTracksTable = """
-            CREATE TABLE IF NOT EXISTS tracks (
-                id VARCHAR(255) PRIMARY KEY,
-                title VARCHAR(500),
-                artist VARCHAR(500),
-                album VARCHAR(500),
-                genre VARCHAR(100),
-                duration INT,
-                bpm INT,
-                mood VARCHAR(100),
-                youtube_id VARCHAR(255),
-                thumbnail_url VARCHAR(1000),
-                added_date TIMESTAMP
-            )
-        """;
+        new SchemaMigrator(pool).migrate();
+    }
 
-        String createPlayHistoryTable = """
-            CREATE TABLE IF NOT EXISTS play_history (
-                id BIGINT AUTO_INCREMENT PRIMARY KEY,
-                track_id VARCHAR(255),
-                played_at TIMESTAMP,
-                play_count INT DEFAULT 1,
-                liked BOOLEAN DEFAULT FALSE,
-                FOREIGN KEY (track_id) REFERENCES tracks(id) ON DELETE CASCADE
-            )
+    private static final String UPSERT_TRACK_SQL = """
+            MERGE INTO tracks (id, title, artist_id, album_id, genre_id, duration,
+                             bpm, mood_id, youtube_id, thumbnail_url, added_date, dedup_key)
+            KEY (id)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
         """;
 
-        try (Statement stmt = connection.createStatement()) {
-            stmt.execute(createTracksTable);
-            stmt.execute(createPlayHistoryTable);
+    private static final String UPSERT_ALIAS_SQL =
+            "MERGE INTO track_aliases (alias_id, canonical_id) KEY (alias_id) VALUES (?, ?)";
+
+    // Dictionary yang udah pasti ke-commit: nama tabel -> (nama -> id)
+    private final Map<String, Map<String, Integer>> dictionaryCache = new ConcurrentHashMap<>();
+    // Resolve dictionary + cek pemilik dedup_key harus serial, biar ga tabrakan unique index
+    private final Object trackWriteLock = new Object();
+
+    public void saveTrack(Track track) throws SQLException {
+        saveTracks(Collections.singletonList(track));
+    }
+
+    /**
+     * Simpen banyak track sekaligus: satu JDBC batch, satu transaksi, satu commit.
+     * Kalau ada yang gagal semuanya di-rollback.
+     *
+     * Artist/title dirapihin dulu (TrackNormalizer.clean). Track yang artist+title-nya
+     * udah dimiliki track lain disimpan dengan dedup_key NULL, dicatat sebagai alias
+     * di track_aliases, dan ga dikirim ke listener. Kalau track itu tadinya kanonik,
+     * alias dan play history-nya ikut dipindah ke kanonik yang baru.
+     */
+    public void saveTracks(List<Track> tracks) throws SQLException {
+        if (tracks == null || tracks.isEmpty()) {
+            return;
+        }
+
+        List<Track> canonical = new ArrayList<>();
+        try (Connection conn = pool.getConnection()) {
+            synchronized (trackWriteLock) {
+                boolean autoCommit = conn.getAutoCommit();
+                conn.setAutoCommit(false);
+                Map<String, Map<String, Integer>> created = new HashMap<>();
+                try (PreparedStatement pstmt = conn.prepareStatement(UPSERT_TRACK_SQL);
+                     PreparedStatement linkAlias = conn.prepareStatement(UPSERT_ALIAS_SQL);
+                     PreparedStatement unlinkAlias = conn.prepareStatement("DELETE FROM track_aliases WHERE alias_id = ?")) {
+                    Map<String, String> batchOwners = new HashMap<>();
+                    Map<String, String> aliased = new LinkedHashMap<>();
+                    for (Track track : tracks) {
+                        track.setArtist(TrackNormalizer.clean(track.getArtist()));
+                        track.setTitle(TrackNormalizer.clean(track.getTitle()));
+
+                        String dedupKey = TrackNormalizer.dedupKey(track.getArtist(), track.getTitle());
+                        String owner = batchOwners.get(dedupKey);
+                        if (owner == null) {
+                            owner = findDedupOwner(conn, dedupKey);
+                        }
+                        if (owner == null || owner.equals(track.getId())) {
+                            batchOwners.put(dedupKey, track.getId());
+                            canonical.add(track);
+                            unlinkAlias.setString(1, track.getId());
+                            unlinkAlias.addBatch();
+                        } else {
+                            dedupKey = null;
+                            linkAlias.setString(1, track.getId());
+                            linkAlias.setString(2, owner);
+                            linkAlias.addBatch();
+                            aliased.put(track.getId(), owner);
+                        }
+
+                        bindTrack(conn, pstmt, track, dedupKey, created);
+                        pstmt.addBatch();
+                    }
+                    pstmt.executeBatch();
+                    // Alias baru bisa nunjuk track yang baru masuk di batch ini, jadi setelah tracks
+                    unlinkAlias.executeBatch();
+                    linkAlias.executeBatch();
+                    moveToCanonical(conn, aliased);
+                    conn.commit();
+                } catch (SQLException e) {
+                    conn.rollback();
+                    throw e;
+                } finally {
+                    conn.setAutoCommit(autoCommit);
+                }
+
+                // Id baru baru boleh di-cache setelah commit, kalau rollback row-nya ikut hilang
+                created.forEach((table, ids) ->
+                        dictionaryCache.computeIfAbsent(table, t -> new ConcurrentHashMap<>()).putAll(ids));
+            }
+        } finally {
+            trackCache.invalidate(tracks);
+        }
+        if (!canonical.isEmpty()) {
+            notifyTracksSaved(canonical);
         }
     }
 
-    public void saveTrack(Track track) throws SQLException {
-        String sql = """
-            MERGE INTO tracks (id, title, artist, album, genre, duration, 
-                             bpm, mood, youtube_id, thumbnail_url, added_date)
-            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
-        """;
+    private void bindTrack(Connection conn, PreparedStatement pstmt, Track track, String dedupKey,
+                           Map<String, Map<String, Integer>> created) throws SQLException {
+        pstmt.setString(1, track.getId());
+        pstmt.setString(2, track.getTitle());
+        setNullableInt(pstmt, 3, dictionaryId(conn, "artists", track.getArtist(), created));
+        setNullableInt(pstmt, 4, dictionaryId(conn, "albums", track.getAlbum(), created));
+        setNullableInt(pstmt, 5, dictionaryId(conn, "genres", track.getGenre(), created));
+        pstmt.setInt(6, track.getDuration());
+        pstmt.setInt(7, track.getBpm());
+        setNullableInt(pstmt, 8, dictionaryId(conn, "moods", track.getMood(), created));
+        pstmt.setString(9, track.getYoutubeId());
+        pstmt.setString(10, track.getThumbnailUrl());
+        pstmt.setTimestamp(11, Timestamp.valueOf(track.getAddedDate()));
+        pstmt.setString(12, dedupKey);
+    }
 
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-            pstmt.setString(1, track.getId());
-            pstmt.setString(2, track.getTitle());
-            pstmt.setString(3, track.getArtist());
-            pstmt.setString(4, track.getAlbum());
-            pstmt.setString(5, track.getGenre());
-            pstmt.setInt(6, track.getDuration());
-            pstmt.setInt(7, track.getBpm());
-            pstmt.setString(8, track.getMood());
-            pstmt.setString(9, track.getYoutubeId());
-            pstmt.setString(10, track.getThumbnailUrl());
-            pstmt.setTimestamp(11, Timestamp.valueOf(track.getAddedDate()));
-            pstmt.executeUpdate();
+    private static void setNullableInt(PreparedStatement pstmt, int index, Integer value) throws SQLException {
+        if (value == null) {
+            pstmt.setNull(index, Types.INTEGER);
+        } else {
+            pstmt.setInt(index, value);
+        }
+    }
+
+    /**
+     * Id dictionary (artists/albums/genres/moods) buat satu nama, insert kalau belum ada.
+     * Nama disimpan apa adanya (case dipertahankan buat ditampilin), null = ga ada.
+     */
+    private Integer dictionaryId(Connection conn, String table, String name,
+                                 Map<String, Map<String, Integer>> created) throws SQLException {
+        if (name == null) {
+            return null;
+        }
+        Integer id = dictionaryCache.getOrDefault(table, Collections.emptyMap()).get(name);
+        if (id == null) {
+            id = created.getOrDefault(table, Collections.emptyMap()).get(name);
+        }
+        if (id != null) {
+            return id;
+        }
+
+        try (PreparedStatement pstmt = conn.prepareStatement("SELECT id FROM " + table + " WHERE name = ?")) {
+            pstmt.setString(1, name);
+            ResultSet rs = pstmt.executeQuery();
+            if (rs.next()) {
+                id = rs.getInt(1);
+            }
+        }
+        if (id == null) {
+            try (PreparedStatement pstmt = conn.prepareStatement(
+                    "INSERT INTO " + table + " (name) VALUES (?)", Statement.RETURN_GENERATED_KEYS)) {
+                pstmt.setString(1, name);
+                pstmt.executeUpdate();
+                ResultSet keys = pstmt.getGeneratedKeys();
+                if (!keys.next()) {
+                    throw new SQLException("No id generated for " + table + " entry: " + name);
+                }
+                id = keys.getInt(1);
+            }
+        }
+        created.computeIfAbsent(table, t -> new HashMap<>()).put(name, id);
+        return id;
+    }
+
+    /**
+     * Track yang (mungkin) tadinya kanonik dan sekarang jadi alias: alias yang nunjuk ke dia
+     * dipindah ke kanonik barunya (biar tetap satu hop), history + track_stats-nya ikut pindah.
+     * Buat track yang dari awal udah alias semua statement-nya ga ngubah apa-apa.
+     */
+    private void moveToCanonical(Connection conn, Map<String, String> aliased) throws SQLException {
+        if (aliased.isEmpty()) {
+            return;
+        }
+
+        Set<String> affected = new HashSet<>();
+        try (PreparedStatement repoint = conn.prepareStatement(
+                     "UPDATE track_aliases SET canonical_id = ? WHERE canonical_id = ?");
+             PreparedStatement moveHistory = conn.prepareStatement(
+                     "UPDATE play_history SET track_id = ? WHERE track_id = ?")) {
+            for (Map.Entry<String, String> entry : aliased.entrySet()) {
+                repoint.setString(1, entry.getValue());
+                repoint.setString(2, entry.getKey());
+                repoint.addBatch();
+                moveHistory.setString(1, entry.getValue());
+                moveHistory.setString(2, entry.getKey());
+                moveHistory.addBatch();
+                affected.add(entry.getKey());
+                affected.add(entry.getValue());
+            }
+            repoint.executeBatch();
+            int[] moved = moveHistory.executeBatch();
+            if (Arrays.stream(moved).noneMatch(count -> count > 0)) {
+                return; // Ga ada history yang pindah, track_stats udah bener
+            }
+        }
+
+        String[] ids = affected.toArray(new String[0]);
+        try (PreparedStatement delete = conn.prepareStatement("DELETE FROM track_stats WHERE track_id = ANY(?)");
+             PreparedStatement insert = conn.prepareStatement("""
+                     INSERT INTO track_stats (track_id, play_count, last_played, liked)
+                     SELECT track_id, COUNT(*), MAX(played_at), MAX(CASE WHEN liked THEN 1 ELSE 0 END) = 1
+                     FROM play_history
+                     WHERE track_id = ANY(?)
+                     GROUP BY track_id
+                     """)) {
+            delete.setObject(1, ids);
+            delete.executeUpdate();
+            insert.setObject(1, ids);
+            insert.executeUpdate();
+        }
+    }
+
+    private String findDedupOwner(Connection conn, String dedupKey) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement("SELECT id FROM tracks WHERE dedup_key = ?")) {
+            pstmt.setString(1, dedupKey);
+            ResultSet rs = pstmt.executeQuery();
+            return rs.next() ? rs.getString(1) : null;
+        }
+    }
+
+    /**
+     * Id kanonik buat id apa aja (videoId, slug fingerprint, dll). Id yang bukan alias dibalikin apa adanya
+     */
+    public String resolveCanonicalId(String trackId) throws SQLException {
+        try (Connection conn = pool.getConnection()) {
+            return resolveCanonicalIds(conn, Collections.singleton(trackId)).getOrDefault(trackId, trackId);
+        }
+    }
+
+    /**
+     * alias -> kanonik buat id yang alias, satu query. Cukup satu hop: saveTracks mindahin
+     * alias yang nunjuk ke track yang jadi alias, jadi ga ada rantai.
+     */
+    private Map<String, String> resolveCanonicalIds(Connection conn, Collection<String> trackIds) throws SQLException {
+        Map<String, String> canonical = new HashMap<>();
+        try (PreparedStatement pstmt = conn.prepareStatement(
+                "SELECT alias_id, canonical_id FROM track_aliases WHERE alias_id = ANY(?)")) {
+            pstmt.setObject(1, new HashSet<>(trackIds).toArray(new String[0]));
+            ResultSet rs = pstmt.executeQuery();
+            while (rs.next()) {
+                canonical.put(rs.getString(1), rs.getString(2));
+            }
+        }
+        return canonical;
+    }
+
+    /**
+     * Track kanonik dengan artist+title yang sama (setelah normalisasi), null kalau belum ada.
+     * Buat hasil fingerprint yang id-nya slug, biar nyambung ke track yang udah ada di library.
+     */
+    public Track findCanonicalTrack(String artist, String title) throws SQLException {
+        try (Connection conn = pool.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement("SELECT * FROM track_view WHERE dedup_key = ?")) {
+            pstmt.setString(1, TrackNormalizer.dedupKey(artist, title));
+            ResultSet rs = pstmt.executeQuery();
+            return rs.next() ? mapTrack(rs) : null;
         }
     }
 
     public Track getTrack(String trackId) throws SQLException {
-        String sql = "SELECT * FROM tracks WHERE id = ?";
+        Track cached = trackCache.get(trackId);
+        if (cached != null) {
+            return cached;
+        }
 
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        String sql = "SELECT * FROM track_view WHERE id = ?";
+        long generation = trackCache.getGeneration();
+
+        try (Connection conn = pool.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setString(1, trackId);
             ResultSet rs = pstmt.executeQuery();
 
             if (rs.next()) {
-                return mapTrack(rs);
+                Track track = mapTrack(rs);
+                trackCache.put(track, generation);
+                return track;
             }
         }
         return null;
     }
 
+    /**
+     * Banyak track sekaligus by id (cache dulu, sisanya satu query). Id yang ga ada ga masuk map.
+     */
+    public Map<String, Track> getTracks(Collection<String> trackIds) throws SQLException {
+        Map<String, Track> tracks = new HashMap<>();
+        List<String> missing = new ArrayList<>();
+        for (String trackId : new HashSet<>(trackIds)) {
+            Track cached = trackCache.get(trackId);
+            if (cached != null) {
+                tracks.put(trackId, cached);
+            } else if (trackId != null) {
+                missing.add(trackId);
+            }
+        }
+        if (missing.isEmpty()) {
+            return tracks;
+        }
+
+        long generation = trackCache.getGeneration();
+        try (Connection conn = pool.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement("SELECT * FROM track_view WHERE id = ANY(?)")) {
+            pstmt.setObject(1, missing.toArray(new String[0]));
+            ResultSet rs = pstmt.executeQuery();
+            while (rs.next()) {
+                Track track = mapTrack(rs);
+                trackCache.put(track, generation);
+                tracks.put(track.getId(), track);
+            }
+        }
+        return tracks;
+    }
+
 
     public List<Track> getAllTracks() throws SQLException {
+        List<Track> cached = trackCache.getLibrary();
+        if (cached != null) {
+            return cached;
+        }
+
         List<Track> tracks = new ArrayList<>();
-        String sql = "SELECT * FROM tracks ORDER BY added_date DESC";
+        String sql = "SELECT * FROM track_view ORDER BY added_date DESC, id DESC";
+        long generation = trackCache.getGeneration();
 
-        try (Statement stmt = connection.createStatement();
+        try (Connection conn = pool.getConnection();
+             Statement stmt = conn.createStatement();
              ResultSet rs = stmt.executeQuery(sql)) {
             while (rs.next()) {
                 tracks.add(mapTrack(rs));
             }
         }
+        trackCache.putLibrary(tracks, generation);
         return tracks;
     }
 
+    /**
+     * Keyset pagination, urutan sama dengan getAllTracks (added_date DESC, id DESC).
+     * cursor = track terakhir dari page sebelumnya, null untuk page pertama.
+     * Page kosong / lebih kecil dari size berarti udah habis.
+     */
+    public List<Track> getTracksPage(Track cursor, int size) throws SQLException {
+        List<Track> tracks = new ArrayList<>();
+        String firstPageSql = """
+            SELECT * FROM track_view
+            ORDER BY added_date DESC, id DESC
+            LIMIT ?
+        """;
+        String nextPageSql = """
+            SELECT * FROM track_view
+            WHERE added_date <= ?
+              AND (added_date < ? OR id < ?)
+            ORDER BY added_date DESC, id DESC
+            LIMIT ?
+        """;
+
+        try (Connection conn = pool.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(cursor == null ? firstPageSql : nextPageSql)) {
+            if (cursor == null) {
+                pstmt.setInt(1, size);
+            } else {
+                Timestamp addedDate = Timestamp.valueOf(cursor.getAddedDate());
+                pstmt.setTimestamp(1, addedDate);
+                pstmt.setTimestamp(2, addedDate);
+                pstmt.setString(3, cursor.getId());
+                pstmt.setInt(4, size);
+            }
+
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    tracks.add(mapTrack(rs));
+                }
+            }
+        }
+        return tracks;
+    }
+
+    /**
+     * Baca semua track secara lazy (row per row), ga di-materialize ke List.
+     * Stream pegang koneksi dari pool, WAJIB di-close:
+     *   try (Stream<Track> tracks = dbManager.streamTracks()) { ... }
+     */
+    public Stream<Track> streamTracks() throws SQLException {
+        return streamQuery("SELECT * FROM track_view ORDER BY added_date DESC, id DESC", this::mapTrack);
+    }
+
+    /**
+     * Kayak streamTracks tapi cuma track kanonik (duplikat artist+title dilewati). WAJIB di-close.
+     */
+    public Stream<Track> streamCanonicalTracks() throws SQLException {
+        return streamQuery("SELECT * FROM track_view WHERE dedup_key IS NOT NULL ORDER BY added_date DESC, id DESC",
+                this::mapTrack);
+    }
+
+    /**
+     * Semua play history urut waktu (lama -> baru), lazy kayak streamTracks. WAJIB di-close.
+     */
+    public Stream<PlayHistory> streamPlayHistory() throws SQLException {
+        return streamQuery("SELECT * FROM play_history WHERE track_id IS NOT NULL ORDER BY played_at, id",
+                this::mapPlayHistory);
+    }
+
+    @FunctionalInterface
+    private interface RowMapper<T> {
+        T map(ResultSet rs) throws SQLException;
+    }
+
+    /**
+     * H2 embedded ngabaiin fetch size dan materialize seluruh result kecuali sesinya
+     * LAZY_QUERY_EXECUTION, jadi selama stream kebuka koneksinya di-set lazy (di-reset waktu close).
+     * Query dengan ORDER BY yang ga ketutup index tetap di-sort dulu; hasil gede di-spill H2 ke disk.
+     */
+    private <T> Stream<T> streamQuery(String sql, RowMapper<T> mapper) throws SQLException {
+        Connection conn = pool.getConnection();
+        PreparedStatement pstmt = null;
+        try {
+            setLazyExecution(conn, true);
+            pstmt = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            pstmt.setFetchSize(fetchSize);
+            ResultSet rs = pstmt.executeQuery();
+
+            Spliterator<T> spliterator = new Spliterators.AbstractSpliterator<>(
+                    Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL) {
+                @Override
+                public boolean tryAdvance(Consumer<? super T> action) {
+                    try {
+                        if (!rs.next()) {
+                            return false;
+                        }
+                        action.accept(mapper.map(rs));
+                        return true;
+                    } catch (SQLException e) {
+                        throw new RuntimeException("Failed to read row", e);
+                    }
+                }
+            };
+
+            PreparedStatement statement = pstmt;
+            return StreamSupport.stream(spliterator, false)
+                    .onClose(() -> {
+                        closeQuietly(rs, statement, null);
+                        resetLazyExecution(conn);
+                        closeQuietly(null, null, conn);
+                    });
+        } catch (SQLException e) {
+            closeQuietly(null, pstmt, null);
+            resetLazyExecution(conn);
+            closeQuietly(null, null, conn);
+            throw e;
+        }
+    }
+
+    private static void setLazyExecution(Connection conn, boolean lazy) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("SET LAZY_QUERY_EXECUTION " + (lazy ? "TRUE" : "FALSE"));
+        }
+    }
+
+    // Koneksi balik ke pool, query pemakai berikutnya jangan ikut lazy
+    private static void resetLazyExecution(Connection conn) {
+        try {
+            setLazyExecution(conn, false);
+        } catch (SQLException e) {
+            System.err.println("Failed to reset lazy query execution: " + e.getMessage());
+        }
+    }
+
+    private void closeQuietly(ResultSet rs, Statement stmt, Connection conn) {
+        for (AutoCloseable resource : new AutoCloseable[]{rs, stmt, conn}) {
+            if (resource == null) {
+                continue;
+            }
+            try {
+                resource.close();
+            } catch (Exception e) {
+                System.err.println("Failed to close JDBC resource: " + e.getMessage());
+            }
+        }
+    }
+
     public void recordPlay(String trackId) throws SQLException {
+        recordPlays(Collections.singletonList(new PlayHistory(trackId)));
+    }
+
+    /**
+     * Insert banyak play event sekaligus (batch, satu transaksi).
+     * Timestamp diambil dari event, bukan waktu insert.
+     * Play dari alias dicatat ke track kanonik (trackId di event ikut diganti),
+     * jadi history dan track_stats nyatu lintas alias.
+     */
+    public void recordPlays(List<PlayHistory> plays) throws SQLException {
+        if (plays == null || plays.isEmpty()) {
+            return;
+        }
+
         String sql = """
             INSERT INTO play_history (track_id, played_at, play_count)
             VALUES (?, ?, 1)
         """;
 
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-            pstmt.setString(1, trackId);
-            pstmt.setTimestamp(2, Timestamp.valueOf(LocalDateTime.now()));
-            pstmt.executeUpdate();
+        try (Connection conn = pool.getConnection()) {
+            boolean autoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+            try (PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+                // Resolve di transaksi yang sama, biar ga keselip track yang baru jadi alias
+                List<String> trackIds = new ArrayList<>();
+                for (PlayHistory play : plays) {
+                    trackIds.add(play.getTrackId());
+                }
+                Map<String, String> canonical = resolveCanonicalIds(conn, trackIds);
+                for (PlayHistory play : plays) {
+                    play.setTrackId(canonical.getOrDefault(play.getTrackId(), play.getTrackId()));
+                }
+
+                for (PlayHistory play : plays) {
+                    pstmt.setString(1, play.getTrackId());
+                    pstmt.setTimestamp(2, Timestamp.valueOf(play.getPlayedAt()));
+                    pstmt.addBatch();
+                }
+                pstmt.executeBatch();
+
+                // Id dipakai listener buat tau play mana yang udah ke-cover rebuild
+                ResultSet keys = pstmt.getGeneratedKeys();
+                for (PlayHistory play : plays) {
+                    if (!keys.next()) {
+                        break;
+                    }
+                    play.setId(keys.getLong(1));
+                }
+                updateTrackStats(conn, plays);
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(autoCommit);
+            }
         }
+        notifyPlaysRecorded(plays);
     }
 
 
+    /**
+     * Update track_stats secara incremental (di dalam transaksi recordPlays)
+     */
+    private void updateTrackStats(Connection conn, List<PlayHistory> plays) throws SQLException {
+        String updateSql = """
+            UPDATE track_stats
+            SET play_count = play_count + 1,
+                last_played = GREATEST(last_played, ?)
+            WHERE track_id = ?
+        """;
+        String insertSql = """
+            INSERT INTO track_stats (track_id, play_count, last_played, liked)
+            VALUES (?, 1, ?, FALSE)
+        """;
+
+        try (PreparedStatement update = conn.prepareStatement(updateSql);
+             PreparedStatement insert = conn.prepareStatement(insertSql)) {
+            for (PlayHistory play : plays) {
+                Timestamp playedAt = Timestamp.valueOf(play.getPlayedAt());
+                update.setTimestamp(1, playedAt);
+                update.setString(2, play.getTrackId());
+                if (update.executeUpdate() == 0) {
+                    insert.setString(1, play.getTrackId());
+                    insert.setTimestamp(2, playedAt);
+                    insert.executeUpdate();
+                }
+            }
+        }
+    }
+
+    // Aggregate play_history per track, dipakai rebuild dan migrasi backfill
+    static final String TRACK_STATS_AGGREGATE_SQL = """
+            SELECT track_id, COUNT(*), MAX(played_at),
+                   MAX(CASE WHEN liked THEN 1 ELSE 0 END) = 1
+            FROM play_history
+            WHERE track_id IS NOT NULL
+            GROUP BY track_id
+        """;
+
+    /**
+     * Hitung ulang track_stats dari nol berdasarkan play_history
+     */
+    public void rebuildTrackStats() throws SQLException {
+        String insertSql = "INSERT INTO track_stats (track_id, play_count, last_played, liked) "
+                + TRACK_STATS_AGGREGATE_SQL;
+
+        try (Connection conn = pool.getConnection()) {
+            boolean autoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+            try (Statement stmt = conn.createStatement()) {
+                stmt.executeUpdate("DELETE FROM track_stats");
+                int rows = stmt.executeUpdate(insertSql);
+                conn.commit();
+                System.out.println("✅ track_stats rebuilt: " + rows + " tracks");
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(autoCommit);
+            }
+        }
+    }
+
+    /**
+     * Bandingin track_stats dengan play_history.
+     * Return jumlah track yang ga cocok; kalau repair = true dan ada selisih, langsung rebuild.
+     */
+    public int verifyTrackStats(boolean repair) throws SQLException {
+        String sql = """
+            SELECT COUNT(*) FROM (
+                SELECT h.track_id
+                FROM (SELECT track_id, COUNT(*) AS cnt, MAX(played_at) AS last_played
+                      FROM play_history
+                      WHERE track_id IS NOT NULL
+                      GROUP BY track_id) h
+                LEFT JOIN track_stats s ON s.track_id = h.track_id
+                WHERE s.track_id IS NULL
+                   OR s.play_count <> h.cnt
+                   OR s.last_played IS DISTINCT FROM h.last_played
+                UNION ALL
+                SELECT s.track_id
+                FROM track_stats s
+                WHERE NOT EXISTS (SELECT 1 FROM play_history ph WHERE ph.track_id = s.track_id)
+            ) mismatches
+        """;
+
+        int mismatches;
+        try (Connection conn = pool.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            mismatches = rs.next() ? rs.getInt(1) : 0;
+        }
+
+        if (mismatches > 0) {
+            System.err.println("⚠️ track_stats out of sync for " + mismatches + " tracks");
+            if (repair) {
+                rebuildTrackStats();
+            }
+        } else {
+            System.out.println("✅ track_stats verified");
+        }
+        return mismatches;
+    }
+
     public List<PlayHistory> getPlayHistory(int limit) throws SQLException {
         List<PlayHistory> history = new ArrayList<>();
         String sql = "SELECT * FROM play_history ORDER BY played_at DESC LIMIT ?";
 
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        try (Connection conn = pool.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setInt(1, limit);
             ResultSet rs = pstmt.executeQuery();
 
             while (rs.next()) {
-                PlayHistory ph = new PlayHistory();
-                ph.setId(rs.getLong("id"));
-                ph.setTrackId(rs.getString("track_id"));
-                ph.setPlayedAt(rs.getTimestamp("played_at").toLocalDateTime());
-                ph.setPlayCount(rs.getInt("play_count"));
-                ph.setLiked(rs.getBoolean("liked"));
-                history.add(ph);
+                history.add(mapPlayHistory(rs));
             }
         }
         return history;
     }
 
+    private PlayHistory mapPlayHistory(ResultSet rs) throws SQLException {
+        PlayHistory ph = new PlayHistory();
+        ph.setId(rs.getLong("id"));
+        ph.setTrackId(rs.getString("track_id"));
+        ph.setPlayedAt(rs.getTimestamp("played_at").toLocalDateTime());
+        ph.setPlayCount(rs.getInt("play_count"));
+        ph.setLiked(rs.getBoolean("liked"));
+        return ph;
+    }
+
+    // ========== Recommendation snapshot ==========
+
+    /**
+     * Ganti snapshot rekomendasi untuk satu jenis (daily mix / similar), urutan dipertahankan
+     */
+    public void saveRecommendationSnapshot(String kind, List<Recommendation> recommendations) throws SQLException {
+        String insertSql = """
+            INSERT INTO recommendation_snapshot (kind, sort_order, track_id, score, reason, created_at)
+            VALUES (?, ?, ?, ?, ?, CURRENT_TIMESTAMP)
+        """;
+
+        try (Connection conn = pool.getConnection()) {
+            boolean autoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+            try (PreparedStatement delete = conn.prepareStatement("DELETE FROM recommendation_snapshot WHERE kind = ?");
+                 PreparedStatement insert = conn.prepareStatement(insertSql)) {
+                delete.setString(1, kind);
+                delete.executeUpdate();
+
+                for (int i = 0; i < recommendations.size(); i++) {
+                    Recommendation rec = recommendations.get(i);
+                    insert.setString(1, kind);
+                    insert.setInt(2, i);
+                    insert.setString(3, rec.getTrack().getId());
+                    insert.setDouble(4, rec.getScore());
+                    insert.setString(5, rec.getReason());
+                    insert.addBatch();
+                }
+                insert.executeBatch();
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(autoCommit);
+            }
+        }
+    }
+
+    public List<Recommendation> loadRecommendationSnapshot(String kind) throws SQLException {
+        List<Recommendation> recommendations = new ArrayList<>();
+        String sql = """
+            SELECT t.*, r.score, r.reason
+            FROM recommendation_snapshot r
+            JOIN track_view t ON t.id = r.track_id
+            WHERE r.kind = ?
+            ORDER BY r.sort_order
+        """;
+
+        try (Connection conn = pool.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, kind);
+            ResultSet rs = pstmt.executeQuery();
+
+            while (rs.next()) {
+                recommendations.add(new Recommendation(mapTrack(rs), rs.getDouble("score"), rs.getString("reason")));
+            }
+        }
+        return recommendations;
+    }
+
+    // ========== Preference profile ==========
+
+    @FunctionalInterface
+    public interface PreferenceConsumer {
+        void accept(String kind, String value, double weight);
+    }
+
+    public void loadPreferenceProfile(PreferenceConsumer consumer) throws SQLException {
+        try (Connection conn = pool.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT kind, attr_value, weight FROM preference_profile")) {
+            while (rs.next()) {
+                consumer.accept(rs.getString(1), rs.getString(2), rs.getDouble(3));
+            }
+        }
+    }
+
+    /**
+     * Tambah bobot (kind -> value -> delta) ke preference_profile, satu transaksi
+     */
+    public void addPreferenceWeights(Map<String, Map<String, Double>> deltas) throws SQLException {
+        String updateSql = "UPDATE preference_profile SET weight = weight + ? WHERE kind = ? AND attr_value = ?";
+        String insertSql = "INSERT INTO preference_profile (kind, attr_value, weight) VALUES (?, ?, ?)";
+
+        try (Connection conn = pool.getConnection()) {
+            boolean autoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+            try (PreparedStatement update = conn.prepareStatement(updateSql);
+                 PreparedStatement insert = conn.prepareStatement(insertSql)) {
+                for (Map.Entry<String, Map<String, Double>> kind : deltas.entrySet()) {
+                    for (Map.Entry<String, Double> value : kind.getValue().entrySet()) {
+                        update.setDouble(1, value.getValue());
+                        update.setString(2, kind.getKey());
+                        update.setString(3, value.getKey());
+                        if (update.executeUpdate() == 0) {
+                            insert.setString(1, kind.getKey());
+                            insert.setString(2, value.getKey());
+                            insert.setDouble(3, value.getValue());
+                            insert.executeUpdate();
+                        }
+                    }
+                }
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(autoCommit);
+            }
+        }
+    }
+
+    /**
+     * Geser titik nol bobot preference_profile: semua bobot (termasuk total) dikali factor dan
+     * row epoch (weight = epoch seconds UTC) diganti, satu transaksi
+     */
+    public void rebasePreferenceProfile(double factor, LocalDateTime epoch) throws SQLException {
+        try (Connection conn = pool.getConnection()) {
+            boolean autoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+            try (PreparedStatement scale = conn.prepareStatement(
+                    "UPDATE preference_profile SET weight = weight * ? WHERE kind <> 'epoch'")) {
+                scale.setDouble(1, factor);
+                scale.executeUpdate();
+                savePreferenceEpoch(conn, epoch);
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(autoCommit);
+            }
+        }
+    }
+
+    private void savePreferenceEpoch(Connection conn, LocalDateTime epoch) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(
+                "MERGE INTO preference_profile (kind, attr_value, weight) KEY (kind, attr_value) VALUES ('epoch', '', ?)")) {
+            pstmt.setDouble(1, epoch.toEpochSecond(ZoneOffset.UTC));
+            pstmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Hitung ulang preference_profile dari play_history:
+     * bobot = SUM(exp((played_at - epoch) / decaySeconds)), epoch ikut disimpan. Cuma play dengan
+     * id <= id terbesar waktu mulai yang dihitung; return id itu (0 kalau history kosong) biar
+     * caller bisa skip play yang udah ke-cover.
+     */
+    public long rebuildPreferenceProfile(LocalDateTime epoch, double decaySeconds) throws SQLException {
+        String weight = "SUM(EXP(DATEDIFF('SECOND', ?, h.played_at) / ?))";
+        String from = " FROM play_history h JOIN track_view t ON t.id = h.track_id WHERE h.id <= ? ";
+
+        try (Connection conn = pool.getConnection()) {
+            boolean autoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+            try (Statement stmt = conn.createStatement()) {
+                stmt.executeUpdate("DELETE FROM preference_profile");
+                savePreferenceEpoch(conn, epoch);
+
+                long upTo;
+                try (ResultSet rs = stmt.executeQuery("SELECT COALESCE(MAX(id), 0) FROM play_history")) {
+                    upTo = rs.next() ? rs.getLong(1) : 0;
+                }
+                if (upTo == 0) {
+                    conn.commit();
+                    return 0;
+                }
+
+                List<String> inserts = new ArrayList<>();
+                for (String column : List.of("artist", "genre", "mood")) {
+                    inserts.add("INSERT INTO preference_profile (kind, attr_value, weight) SELECT '" + column
+                            + "', LOWER(t." + column + "), " + weight + from
+                            + "AND t." + column + " IS NOT NULL AND t." + column + " <> '' GROUP BY LOWER(t." + column + ")");
+                }
+                inserts.add("INSERT INTO preference_profile (kind, attr_value, weight) SELECT 'total', '', " + weight + from
+                        + "HAVING COUNT(*) > 0");
+
+                for (String sql : inserts) {
+                    try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                        pstmt.setTimestamp(1, Timestamp.valueOf(epoch));
+                        pstmt.setDouble(2, decaySeconds);
+                        pstmt.setLong(3, upTo);
+                        pstmt.executeUpdate();
+                    }
+                }
+                conn.commit();
+                return upTo;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(autoCommit);
+            }
+        }
+    }
+
+    // ========== Track transitions (next-track model) ==========
+
+    @FunctionalInterface
+    public interface TransitionConsumer {
+        void accept(String fromId, String toId, int count);
+    }
+
+    public void loadTransitions(TransitionConsumer consumer) throws SQLException {
+        try (Connection conn = pool.getConnection();
+             Statement stmt = conn.createStatement()) {
+            stmt.setFetchSize(fetchSize);
+            ResultSet rs = stmt.executeQuery("SELECT from_id, to_id, transition_count FROM track_transitions");
+            while (rs.next()) {
+                consumer.accept(rs.getString(1), rs.getString(2), rs.getInt(3));
+            }
+        }
+    }
+
+    /**
+     * Tambah hitungan transisi (from -> to -> delta), satu transaksi
+     */
+    public void addTransitionCounts(Map<String, Map<String, Integer>> deltas) throws SQLException {
+        String updateSql = "UPDATE track_transitions SET transition_count = transition_count + ? WHERE from_id = ? AND to_id = ?";
+        String insertSql = "INSERT INTO track_transitions (from_id, to_id, transition_count) VALUES (?, ?, ?)";
+
+        try (Connection conn = pool.getConnection()) {
+            boolean autoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+            try (PreparedStatement update = conn.prepareStatement(updateSql);
+                 PreparedStatement insert = conn.prepareStatement(insertSql)) {
+                for (Map.Entry<String, Map<String, Integer>> from : deltas.entrySet()) {
+                    for (Map.Entry<String, Integer> to : from.getValue().entrySet()) {
+                        update.setInt(1, to.getValue());
+                        update.setString(2, from.getKey());
+                        update.setString(3, to.getKey());
+                        if (update.executeUpdate() == 0) {
+                            insert.setString(1, from.getKey());
+                            insert.setString(2, to.getKey());
+                            insert.setInt(3, to.getValue());
+                            insert.executeUpdate();
+                        }
+                    }
+                }
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(autoCommit);
+            }
+        }
+    }
+
+    // ========== Stream URL cache ==========
+
+    @FunctionalInterface
+    public interface StreamUrlConsumer {
+        void accept(String videoId, String url, long expiresAt);
+    }
+
+    /**
+     * Hapus URL yang expire sebelum batas, lalu kirim sisanya ke consumer.
+     * expiresAt = epoch seconds (dari parameter expire= URL googlevideo)
+     */
+    public void loadStreamUrls(long validAfter, StreamUrlConsumer consumer) throws SQLException {
+        try (Connection conn = pool.getConnection()) {
+            try (PreparedStatement purge = conn.prepareStatement("DELETE FROM stream_url_cache WHERE expires_at <= ?")) {
+                purge.setLong(1, validAfter);
+                purge.executeUpdate();
+            }
+            try (PreparedStatement pstmt = conn.prepareStatement(
+                    "SELECT video_id, url, expires_at FROM stream_url_cache ORDER BY cached_at")) {
+                ResultSet rs = pstmt.executeQuery();
+                while (rs.next()) {
+                    consumer.accept(rs.getString(1), rs.getString(2), rs.getLong(3));
+                }
+            }
+        }
+    }
+
+    public void saveStreamUrl(String videoId, String url, long expiresAt) throws SQLException {
+        String sql = """
+            MERGE INTO stream_url_cache (video_id, url, expires_at, cached_at)
+            KEY (video_id)
+            VALUES (?, ?, ?, CURRENT_TIMESTAMP)
+        """;
+
+        try (Connection conn = pool.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, videoId);
+            pstmt.setString(2, url);
+            pstmt.setLong(3, expiresAt);
+            pstmt.executeUpdate();
+        }
+    }
+
+    public void deleteStreamUrl(String videoId) throws SQLException {
+        try (Connection conn = pool.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement("DELETE FROM stream_url_cache WHERE video_id = ?")) {
+            pstmt.setString(1, videoId);
+            pstmt.executeUpdate();
+        }
+    }
+
+    // ========== Precomputed neighbors ==========
+
+    private static final String CF_NEIGHBORS_TABLE = "track_cf_neighbors";
+    private static final String CONTENT_NEIGHBORS_TABLE = "track_neighbors";
+
+    /**
+     * Ganti seluruh isi track_cf_neighbors dengan hasil build terbaru (satu transaksi)
+     */
+    public void replaceCfNeighbors(List<TrackNeighbor> neighbors) throws SQLException {
+        replaceNeighbors(CF_NEIGHBORS_TABLE, neighbors);
+    }
+
+    /**
+     * Tetangga collaborative filtering untuk satu track, urut similarity tertinggi
+     */
+    public List<TrackNeighbor> getCfNeighbors(String trackId, int limit) throws SQLException {
+        return getNeighbors(CF_NEIGHBORS_TABLE, trackId, limit);
+    }
+
+    /**
+     * K tetangga content-based yang udah di-precompute (satu read lewat primary key)
+     */
+    public List<TrackNeighbor> getContentNeighbors(String trackId, int limit) throws SQLException {
+        return getNeighbors(CONTENT_NEIGHBORS_TABLE, trackId, limit);
+    }
+
+    /**
+     * Track yang tetangganya belum pernah dihitung (baru, atau sempat crash sebelum disimpan)
+     */
+    public List<String> getTracksWithoutContentNeighbors() throws SQLException {
+        List<String> trackIds = new ArrayList<>();
+        String sql = """
+            SELECT t.id FROM tracks t
+            WHERE t.dedup_key IS NOT NULL
+              AND NOT EXISTS (SELECT 1 FROM track_neighbor_status s WHERE s.track_id = t.id)
+        """;
+
+        try (Connection conn = pool.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            while (rs.next()) {
+                trackIds.add(rs.getString(1));
+            }
+        }
+        return trackIds;
+    }
+
+    /**
+     * Simpen hasil kNN untuk trackIds dalam satu transaksi:
+     * - list tetangga trackIds diganti forward,
+     * - entry lama yang nunjuk ke trackIds dihapus (fiturnya bisa udah berubah),
+     * - reverse (track lain yang sekarang punya trackIds sebagai tetangga) di-merge lalu dipotong ke k.
+     * Return track lain yang list tetangganya berubah.
+     */
+    public Set<String> saveContentNeighbors(Collection<String> trackIds, List<TrackNeighbor> forward,
+                                            List<TrackNeighbor> reverse, int k) throws SQLException {
+        Set<String> changed = new HashSet<>();
+
+        try (Connection conn = pool.getConnection()) {
+            boolean autoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+            try (PreparedStatement pointing = conn.prepareStatement(
+                         "SELECT track_id FROM track_neighbors WHERE neighbor_id = ?");
+                 PreparedStatement deleteTo = conn.prepareStatement(
+                         "DELETE FROM track_neighbors WHERE neighbor_id = ?");
+                 PreparedStatement deleteFrom = conn.prepareStatement(
+                         "DELETE FROM track_neighbors WHERE track_id = ?");
+                 PreparedStatement merge = conn.prepareStatement(
+                         "MERGE INTO track_neighbors (track_id, neighbor_id, similarity) KEY (track_id, neighbor_id) VALUES (?, ?, ?)");
+                 PreparedStatement trim = conn.prepareStatement("""
+                         DELETE FROM track_neighbors
+                         WHERE track_id = ? AND neighbor_id NOT IN (
+                             SELECT neighbor_id FROM track_neighbors
+                             WHERE track_id = ?
+                             ORDER BY similarity DESC, neighbor_id
+                             LIMIT ?)
+                         """);
+                 PreparedStatement status = conn.prepareStatement(
+                         "MERGE INTO track_neighbor_status (track_id, computed_at) KEY (track_id) VALUES (?, CURRENT_TIMESTAMP)")) {
+
+                for (String trackId : trackIds) {
+                    pointing.setString(1, trackId);
+                    try (ResultSet rs = pointing.executeQuery()) {
+                        while (rs.next()) {
+                            changed.add(rs.getString(1));
+                        }
+                    }
+                    deleteTo.setString(1, trackId);
+                    deleteTo.addBatch();
+                    deleteFrom.setString(1, trackId);
+                    deleteFrom.addBatch();
+                    status.setString(1, trackId);
+                    status.addBatch();
+                }
+                deleteTo.executeBatch();
+                deleteFrom.executeBatch();
+
+                for (List<TrackNeighbor> rows : List.of(forward, reverse)) {
+                    for (TrackNeighbor neighbor : rows) {
+                        merge.setString(1, neighbor.getTrackId());
+                        merge.setString(2, neighbor.getNeighborId());
+                        merge.setDouble(3, neighbor.getSimilarity());
+                        merge.addBatch();
+                    }
+                }
+                merge.executeBatch();
+
+                for (TrackNeighbor neighbor : reverse) {
+                    changed.add(neighbor.getTrackId());
+                }
+                changed.removeAll(trackIds);
+                for (String trackId : changed) {
+                    trim.setString(1, trackId);
+                    trim.setString(2, trackId);
+                    trim.setInt(3, k);
+                    trim.addBatch();
+                }
+                trim.executeBatch();
+                status.executeBatch();
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(autoCommit);
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Jumlah tetangga + similarity terendah per track; trackIds null = semua track
+     */
+    public void forEachContentNeighborSummary(Collection<String> trackIds, NeighborSummaryConsumer consumer)
+            throws SQLException {
+        String sql = "SELECT track_id, COUNT(*), MIN(similarity) FROM track_neighbors"
+                + (trackIds == null ? "" : " WHERE track_id = ANY(?)")
+                + " GROUP BY track_id";
+
+        try (Connection conn = pool.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            if (trackIds != null) {
+                pstmt.setObject(1, trackIds.toArray(new String[0]));
+            }
+            pstmt.setFetchSize(fetchSize);
+            ResultSet rs = pstmt.executeQuery();
+
+            while (rs.next()) {
+                consumer.accept(rs.getString(1), rs.getInt(2), rs.getDouble(3));
+            }
+        }
+    }
+
+    @FunctionalInterface
+    public interface NeighborSummaryConsumer {
+        void accept(String trackId, int count, double minSimilarity);
+    }
+
+    private void replaceNeighbors(String table, List<TrackNeighbor> neighbors) throws SQLException {
+        String insertSql = "INSERT INTO " + table + " (track_id, neighbor_id, similarity) VALUES (?, ?, ?)";
+
+        try (Connection conn = pool.getConnection()) {
+            boolean autoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+            try (Statement stmt = conn.createStatement();
+                 PreparedStatement pstmt = conn.prepareStatement(insertSql)) {
+                stmt.executeUpdate("DELETE FROM " + table);
+                int pending = 0;
+                for (TrackNeighbor neighbor : neighbors) {
+                    pstmt.setString(1, neighbor.getTrackId());
+                    pstmt.setString(2, neighbor.getNeighborId());
+                    pstmt.setDouble(3, neighbor.getSimilarity());
+                    pstmt.addBatch();
+                    if (++pending % 500 == 0) {
+                        pstmt.executeBatch();
+                    }
+                }
+                pstmt.executeBatch();
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(autoCommit);
+            }
+        }
+    }
+
+    private List<TrackNeighbor> getNeighbors(String table, String trackId, int limit) throws SQLException {
+        List<TrackNeighbor> neighbors = new ArrayList<>();
+        String sql = "SELECT neighbor_id, similarity FROM " + table
+                + " WHERE track_id = ? ORDER BY similarity DESC, neighbor_id LIMIT ?";
+
+        try (Connection conn = pool.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, trackId);
+            pstmt.setInt(2, limit);
+            ResultSet rs = pstmt.executeQuery();
+
+            while (rs.next()) {
+                neighbors.add(new TrackNeighbor(trackId, rs.getString("neighbor_id"), rs.getDouble("similarity")));
+            }
+        }
+        return neighbors;
+    }
+
 
     public List<Track> getMostPlayedTracks(int limit) throws SQLException {
         List<Track> tracks = new ArrayList<>();
+        // Top-N langsung dari index idx_track_stats_top, ga perlu GROUP BY play_history
         String sql = """
-            SELECT t.*, COUNT(ph.id) as play_count
-            FROM tracks t
-            JOIN play_history ph ON t.id = ph.track_id
-            GROUP BY t.id
-            ORDER BY play_count DESC
+            SELECT t.*, s.play_count
+            FROM track_stats s
+            JOIN track_view t ON t.id = s.track_id
+            ORDER BY s.play_count DESC, s.last_played DESC
             LIMIT ?
         """;
 
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+        try (Connection conn = pool.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setInt(1, limit);
             ResultSet rs = pstmt.executeQuery();
 
@@ -197,13 +1290,62 @@ public class DatabaseManager {
         return track;
     }
 
-    public void close() {
-        try {
-            if (connection != null && !connection.isClosed()) {
-                connection.close();
+    /**
+     * Statistik pool (wait time, usage) buat monitoring
+     */
+    public ConnectionPool getPool() {
+        return pool;
+    }
+
+    // ========== Change listeners ==========
+
+    public void addDataChangeListener(DataChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeDataChangeListener(DataChangeListener listener) {
+        listeners.remove(listener);
+    }
+
+    private void notifyTracksSaved(List<Track> tracks) {
+        List<Track> saved = Collections.unmodifiableList(tracks);
+        for (DataChangeListener listener : listeners) {
+            try {
+                listener.onTracksSaved(saved);
+            } catch (RuntimeException e) {
+                System.err.println("⚠️ Data listener failed: " + e.getMessage());
+            }
+        }
+    }
+
+    private void notifyPlaysRecorded(List<PlayHistory> plays) {
+        List<PlayHistory> recorded = Collections.unmodifiableList(plays);
+        for (DataChangeListener listener : listeners) {
+            try {
+                listener.onPlaysRecorded(recorded);
+            } catch (RuntimeException e) {
+                System.err.println("⚠️ Data listener failed: " + e.getMessage());
             }
-        } catch (SQLException e) {
-            e.printStackTrace();
         }
     }
+
+    public TrackCache getTrackCache() {
+        return trackCache;
+    }
+
+    public void close() {
+        System.out.println("📊 DB pool stats: " + pool);
+        System.out.println("📊 Track cache stats: " + trackCache);
+        pool.close();
+    }
+
+    /**
+     * Dipanggil setelah commit, di thread yang nyimpen data
+     * (search worker, enrichment pool, atau play journal).
+     * onTracksSaved cuma nerima track kanonik, duplikat ga dikirim.
+     */
+    public interface DataChangeListener {
+        default void onTracksSaved(List<Track> tracks) {}
+        default void onPlaysRecorded(List<PlayHistory> plays) {}
+    }
 }
\ No newline at end of file
@@ -0,0 +1,168 @@
+package com.musicplayer.repository;
+
+import com.musicplayer.model.PlayHistory;
+import com.musicplayer.util.ConfigLoader;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Write-behind journal buat play event.
+ * record() cuma masuk antrian (aman dipanggil dari EDT), insert ke H2
+ * dilakuin batch di background thread.
+ */
+public class PlayEventJournal {
+
+    private final DatabaseManager dbManager;
+    private final BlockingQueue<PlayHistory> queue;
+    private final int batchSize;
+    private final long flushIntervalMillis;
+    private final Thread writerThread;
+    private volatile boolean running = true;
+
+    // Metrics
+    private final AtomicLong recorded = new AtomicLong();
+    private final AtomicLong flushed = new AtomicLong();
+    private final AtomicLong flushes = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong overflows = new AtomicLong();
+    private final AtomicLong totalFlushNanos = new AtomicLong();
+    private final AtomicLong maxFlushNanos = new AtomicLong();
+    private volatile long lastFlushNanos = 0;
+
+    public PlayEventJournal(DatabaseManager dbManager) {
+        this.dbManager = dbManager;
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, ConfigLoader.getInt("db.play.queue.capacity", 1000)));
+        this.batchSize = Math.max(1, ConfigLoader.getInt("db.play.flush.batch.size", 50));
+        this.flushIntervalMillis = Math.max(10, ConfigLoader.getInt("db.play.flush.interval.ms", 2000));
+
+        this.writerThread = new Thread(this::writeLoop, "play-event-journal");
+        this.writerThread.setDaemon(true);
+        this.writerThread.start();
+    }
+
+    /**
+     * Catat play event (non-blocking, ga pernah nulis ke DB di thread pemanggil).
+     * Kalau antrian penuh event-nya dibuang (dihitung di overflows); setelah shutdown ditolak.
+     */
+    public void record(String trackId) {
+        if (trackId == null) {
+            return;
+        }
+        if (!running) {
+            System.err.println("⚠️ Play journal is shut down, ignoring play event for " + trackId);
+            return;
+        }
+
+        recorded.incrementAndGet();
+        if (!queue.offer(new PlayHistory(trackId))) {
+            overflows.incrementAndGet();
+            System.err.println("⚠️ Play journal queue full, dropped play event for " + trackId);
+        }
+    }
+
+    private void writeLoop() {
+        List<PlayHistory> batch = new ArrayList<>(batchSize);
+
+        while (running) {
+            try {
+                PlayHistory first = queue.poll(flushIntervalMillis, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                flush(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void flush(List<PlayHistory> batch) {
+        long start = System.nanoTime();
+        try {
+            dbManager.recordPlays(batch);
+            flushed.addAndGet(batch.size());
+        } catch (SQLException e) {
+            System.err.println("⚠️ Play batch failed, retrying one by one: " + e.getMessage());
+            // Satu event rusak (misal track_id ga ada) jangan sampe buang satu batch
+            for (PlayHistory event : batch) {
+                try {
+                    dbManager.recordPlays(Collections.singletonList(event));
+                    flushed.incrementAndGet();
+                } catch (SQLException ex) {
+                    failed.incrementAndGet();
+                    System.err.println("❌ Dropped play event for " + event.getTrackId() + ": " + ex.getMessage());
+                }
+            }
+        }
+
+        long elapsed = System.nanoTime() - start;
+        flushes.incrementAndGet();
+        lastFlushNanos = elapsed;
+        totalFlushNanos.addAndGet(elapsed);
+        maxFlushNanos.accumulateAndGet(elapsed, Math::max);
+    }
+
+    /**
+     * Stop writer thread lalu flush semua event yang masih di antrian.
+     * Panggil sebelum DatabaseManager.close().
+     */
+    public void shutdown() {
+        // Sengaja ga di-interrupt: interrupt di tengah I/O bisa nutup file channel H2.
+        // Writer keluar sendiri paling lambat satu flush interval.
+        running = false;
+        try {
+            writerThread.join(flushIntervalMillis + 5000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        List<PlayHistory> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        for (int i = 0; i < remaining.size(); i += batchSize) {
+            flush(remaining.subList(i, Math.min(remaining.size(), i + batchSize)));
+        }
+
+        System.out.println("📊 Play journal stats: " + this);
+    }
+
+    // ========== Metrics ==========
+
+    public int getQueueDepth() { return queue.size(); }
+    public long getRecordedCount() { return recorded.get(); }
+    public long getFlushedCount() { return flushed.get(); }
+    public long getFlushCount() { return flushes.get(); }
+    public long getFailedCount() { return failed.get(); }
+    public long getOverflowCount() { return overflows.get(); }
+
+    public double getLastFlushMillis() {
+        return lastFlushNanos / 1_000_000.0;
+    }
+
+    public double getAverageFlushMillis() {
+        long count = flushes.get();
+        return count == 0 ? 0.0 : totalFlushNanos.get() / 1_000_000.0 / count;
+    }
+
+    public double getMaxFlushMillis() {
+        return maxFlushNanos.get() / 1_000_000.0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("queued=%d, recorded=%d, flushed=%d, failed=%d, overflows=%d, flushes=%d, avgFlush=%.2fms, maxFlush=%.2fms",
+                getQueueDepth(), getRecordedCount(), getFlushedCount(), getFailedCount(), getOverflowCount(),
+                getFlushCount(), getAverageFlushMillis(), getMaxFlushMillis());
+    }
+}
@@ -0,0 +1,411 @@
+package com.musicplayer.repository;
+
+import com.musicplayer.util.TrackNormalizer;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Migrasi schema berversi, dijalankan sekali waktu startup.
+ * Versi yang udah diterapkan dicatat di tabel schema_version,
+ * jadi file data/musicplayer.mv.db lama di-upgrade step by step.
+ *
+ * Catatan: DDL di H2 auto-commit, jadi tiap migrasi harus idempotent
+ * (IF NOT EXISTS dkk) biar aman diulang kalau sempat crash di tengah.
+ * Perubahan schema baru = tambah entry di akhir MIGRATIONS, jangan edit yang lama.
+ */
+class SchemaMigrator {
+
+    @FunctionalInterface
+    interface MigrationStep {
+        void apply(Connection conn) throws SQLException;
+    }
+
+    private static class Migration {
+        final int version;
+        final String description;
+        final MigrationStep step;
+
+        Migration(int version, String description, MigrationStep step) {
+            this.version = version;
+            this.description = description;
+            this.step = step;
+        }
+    }
+
+    private static final List<Migration> MIGRATIONS = new ArrayList<>();
+
+    // tabel dictionary -> kolom lama di tracks
+    private static final String[][] DICTIONARY_COLUMNS = {
+            {"artists", "artist"}, {"albums", "album"}, {"genres", "genre"}, {"moods", "mood"}
+    };
+
+    static {
+        MIGRATIONS.add(new Migration(1, "Create tracks and play_history", conn -> execute(conn,
+                """
+                CREATE TABLE IF NOT EXISTS tracks (
+                    id VARCHAR(255) PRIMARY KEY,
+                    title VARCHAR(500),
+                    artist VARCHAR(500),
+                    album VARCHAR(500),
+                    genre VARCHAR(100),
+                    duration INT,
+                    bpm INT,
+                    mood VARCHAR(100),
+                    youtube_id VARCHAR(255),
+                    thumbnail_url VARCHAR(1000),
+                    added_date TIMESTAMP
+                )
+                """,
+                """
+                CREATE TABLE IF NOT EXISTS play_history (
+                    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+                    track_id VARCHAR(255),
+                    played_at TIMESTAMP,
+                    play_count INT DEFAULT 1,
+                    liked BOOLEAN DEFAULT FALSE,
+                    FOREIGN KEY (track_id) REFERENCES tracks(id) ON DELETE CASCADE
+                )
+                """)));
+
+        MIGRATIONS.add(new Migration(2, "Create track_stats aggregate", conn -> {
+            execute(conn,
+                    """
+                    CREATE TABLE IF NOT EXISTS track_stats (
+                        track_id VARCHAR(255) PRIMARY KEY,
+                        play_count INT NOT NULL DEFAULT 0,
+                        last_played TIMESTAMP,
+                        liked BOOLEAN DEFAULT FALSE,
+                        FOREIGN KEY (track_id) REFERENCES tracks(id) ON DELETE CASCADE
+                    )
+                    """,
+                    """
+                    CREATE INDEX IF NOT EXISTS idx_track_stats_top
+                    ON track_stats (play_count DESC, last_played DESC)
+                    """);
+
+            // Backfill DB lama yang udah punya history
+            if (!exists(conn, "SELECT 1 FROM track_stats")) {
+                execute(conn, "INSERT INTO track_stats (track_id, play_count, last_played, liked) "
+                        + DatabaseManager.TRACK_STATS_AGGREGATE_SQL);
+            }
+        }));
+
+        MIGRATIONS.add(new Migration(3, "Secondary indexes for history and library queries", conn -> execute(conn,
+                "CREATE INDEX IF NOT EXISTS idx_play_history_track_id ON play_history (track_id)",
+                "CREATE INDEX IF NOT EXISTS idx_play_history_played_at ON play_history (played_at)",
+                "CREATE INDEX IF NOT EXISTS idx_tracks_added_date ON tracks (added_date)",
+                "CREATE INDEX IF NOT EXISTS idx_tracks_artist_title ON tracks (artist, title)")));
+
+        MIGRATIONS.add(new Migration(4, "Keyset index for track pagination", conn -> execute(conn,
+                "CREATE INDEX IF NOT EXISTS idx_tracks_added_date_id ON tracks (added_date DESC, id DESC)")));
+
+        MIGRATIONS.add(new Migration(5, "Create track_cf_neighbors", conn -> execute(conn,
+                """
+                CREATE TABLE IF NOT EXISTS track_cf_neighbors (
+                    track_id VARCHAR(255) NOT NULL,
+                    neighbor_id VARCHAR(255) NOT NULL,
+                    similarity DOUBLE NOT NULL,
+                    PRIMARY KEY (track_id, neighbor_id),
+                    FOREIGN KEY (track_id) REFERENCES tracks(id) ON DELETE CASCADE,
+                    FOREIGN KEY (neighbor_id) REFERENCES tracks(id) ON DELETE CASCADE
+                )
+                """,
+                "CREATE INDEX IF NOT EXISTS idx_track_cf_neighbors_top ON track_cf_neighbors (track_id, similarity DESC)")));
+
+        MIGRATIONS.add(new Migration(6, "Create track_neighbors for precomputed content kNN", conn -> execute(conn,
+                """
+                CREATE TABLE IF NOT EXISTS track_neighbors (
+                    track_id VARCHAR(255) NOT NULL,
+                    neighbor_id VARCHAR(255) NOT NULL,
+                    similarity DOUBLE NOT NULL,
+                    PRIMARY KEY (track_id, neighbor_id),
+                    FOREIGN KEY (track_id) REFERENCES tracks(id) ON DELETE CASCADE,
+                    FOREIGN KEY (neighbor_id) REFERENCES tracks(id) ON DELETE CASCADE
+                )
+                """,
+                "CREATE INDEX IF NOT EXISTS idx_track_neighbors_top ON track_neighbors (track_id, similarity DESC)",
+                "CREATE INDEX IF NOT EXISTS idx_track_neighbors_neighbor ON track_neighbors (neighbor_id)",
+                """
+                CREATE TABLE IF NOT EXISTS track_neighbor_status (
+                    track_id VARCHAR(255) PRIMARY KEY,
+                    computed_at TIMESTAMP,
+                    FOREIGN KEY (track_id) REFERENCES tracks(id) ON DELETE CASCADE
+                )
+                """)));
+
+        // Diisi dari play_history oleh PreferenceProfileService waktu pertama kali load
+        MIGRATIONS.add(new Migration(7, "Create preference_profile", conn -> execute(conn,
+                """
+                CREATE TABLE IF NOT EXISTS preference_profile (
+                    kind VARCHAR(16) NOT NULL,
+                    attr_value VARCHAR(500) NOT NULL,
+                    weight DOUBLE NOT NULL,
+                    PRIMARY KEY (kind, attr_value)
+                )
+                """)));
+
+        MIGRATIONS.add(new Migration(8, "Create track_transitions for next-track model", conn -> execute(conn,
+                """
+                CREATE TABLE IF NOT EXISTS track_transitions (
+                    from_id VARCHAR(255) NOT NULL,
+                    to_id VARCHAR(255) NOT NULL,
+                    transition_count INT NOT NULL DEFAULT 0,
+                    PRIMARY KEY (from_id, to_id),
+                    FOREIGN KEY (from_id) REFERENCES tracks(id) ON DELETE CASCADE,
+                    FOREIGN KEY (to_id) REFERENCES tracks(id) ON DELETE CASCADE
+                )
+                """)));
+
+        MIGRATIONS.add(new Migration(9, "Create recommendation_snapshot", conn -> execute(conn,
+                """
+                CREATE TABLE IF NOT EXISTS recommendation_snapshot (
+                    kind VARCHAR(32) NOT NULL,
+                    sort_order INT NOT NULL,
+                    track_id VARCHAR(255) NOT NULL,
+                    score DOUBLE,
+                    reason VARCHAR(255),
+                    created_at TIMESTAMP,
+                    PRIMARY KEY (kind, sort_order),
+                    FOREIGN KEY (track_id) REFERENCES tracks(id) ON DELETE CASCADE
+                )
+                """)));
+
+        // Artist/album/genre/mood pindah ke tabel dictionary (id INT), baca lewat track_view.
+        // dedup_key = artist|title dinormalisasi, cuma track kanonik yang punya (duplikat NULL).
+        MIGRATIONS.add(new Migration(10, "Dictionary tables, dedup_key and track_view", conn -> {
+            execute(conn,
+                    "CREATE TABLE IF NOT EXISTS artists (id INT AUTO_INCREMENT PRIMARY KEY, name VARCHAR(500) NOT NULL UNIQUE)",
+                    "CREATE TABLE IF NOT EXISTS albums (id INT AUTO_INCREMENT PRIMARY KEY, name VARCHAR(500) NOT NULL UNIQUE)",
+                    "CREATE TABLE IF NOT EXISTS genres (id INT AUTO_INCREMENT PRIMARY KEY, name VARCHAR(100) NOT NULL UNIQUE)",
+                    "CREATE TABLE IF NOT EXISTS moods (id INT AUTO_INCREMENT PRIMARY KEY, name VARCHAR(100) NOT NULL UNIQUE)",
+                    "ALTER TABLE tracks ADD COLUMN IF NOT EXISTS artist_id INT",
+                    "ALTER TABLE tracks ADD COLUMN IF NOT EXISTS album_id INT",
+                    "ALTER TABLE tracks ADD COLUMN IF NOT EXISTS genre_id INT",
+                    "ALTER TABLE tracks ADD COLUMN IF NOT EXISTS mood_id INT",
+                    "ALTER TABLE tracks ADD COLUMN IF NOT EXISTS dedup_key VARCHAR(1100)");
+
+            // Kolom lama masih ada = belum sempat di-backfill (atau crash di tengah, aman diulang)
+            if (columnExists(conn, "TRACKS", "ARTIST")) {
+                for (String[] dictionary : DICTIONARY_COLUMNS) {
+                    String table = dictionary[0];
+                    String column = dictionary[1];
+                    execute(conn,
+                            "INSERT INTO " + table + " (name) SELECT DISTINCT " + column + " FROM tracks t"
+                                    + " WHERE " + column + " IS NOT NULL"
+                                    + " AND NOT EXISTS (SELECT 1 FROM " + table + " d WHERE d.name = t." + column + ")",
+                            "UPDATE tracks t SET " + column + "_id = (SELECT d.id FROM " + table + " d WHERE d.name = t." + column + ")"
+                                    + " WHERE " + column + " IS NOT NULL");
+                }
+                backfillDedupKeys(conn);
+            }
+
+            execute(conn,
+                    "DROP INDEX IF EXISTS idx_tracks_artist_title",
+                    "ALTER TABLE tracks DROP COLUMN IF EXISTS artist",
+                    "ALTER TABLE tracks DROP COLUMN IF EXISTS album",
+                    "ALTER TABLE tracks DROP COLUMN IF EXISTS genre",
+                    "ALTER TABLE tracks DROP COLUMN IF EXISTS mood",
+                    "ALTER TABLE tracks ADD CONSTRAINT IF NOT EXISTS fk_tracks_artist FOREIGN KEY (artist_id) REFERENCES artists(id)",
+                    "ALTER TABLE tracks ADD CONSTRAINT IF NOT EXISTS fk_tracks_album FOREIGN KEY (album_id) REFERENCES albums(id)",
+                    "ALTER TABLE tracks ADD CONSTRAINT IF NOT EXISTS fk_tracks_genre FOREIGN KEY (genre_id) REFERENCES genres(id)",
+                    "ALTER TABLE tracks ADD CONSTRAINT IF NOT EXISTS fk_tracks_mood FOREIGN KEY (mood_id) REFERENCES moods(id)",
+                    "CREATE UNIQUE INDEX IF NOT EXISTS idx_tracks_dedup_key ON tracks (dedup_key)",
+                    """
+                    CREATE OR REPLACE VIEW track_view AS
+                    SELECT t.id, t.title, a.name AS artist, al.name AS album, g.name AS genre,
+                           t.duration, t.bpm, m.name AS mood, t.youtube_id, t.thumbnail_url,
+                           t.added_date, t.dedup_key
+                    FROM tracks t
+                    LEFT JOIN artists a ON a.id = t.artist_id
+                    LEFT JOIN albums al ON al.id = t.album_id
+                    LEFT JOIN genres g ON g.id = t.genre_id
+                    LEFT JOIN moods m ON m.id = t.mood_id
+                    """);
+        }));
+
+        // Duplikat (dedup_key NULL) ditautkan ke track kanoniknya; history alias dipindah ke kanonik
+        MIGRATIONS.add(new Migration(11, "Create track_aliases and merge alias play history", conn -> {
+            execute(conn,
+                    """
+                    CREATE TABLE IF NOT EXISTS track_aliases (
+                        alias_id VARCHAR(255) PRIMARY KEY,
+                        canonical_id VARCHAR(255) NOT NULL,
+                        FOREIGN KEY (alias_id) REFERENCES tracks(id) ON DELETE CASCADE,
+                        FOREIGN KEY (canonical_id) REFERENCES tracks(id) ON DELETE CASCADE
+                    )
+                    """,
+                    "CREATE INDEX IF NOT EXISTS idx_track_aliases_canonical ON track_aliases (canonical_id)");
+
+            backfillAliases(conn);
+
+            execute(conn,
+                    """
+                    UPDATE play_history h
+                    SET track_id = (SELECT a.canonical_id FROM track_aliases a WHERE a.alias_id = h.track_id)
+                    WHERE h.track_id IN (SELECT alias_id FROM track_aliases)
+                    """,
+                    "DELETE FROM track_stats",
+                    "INSERT INTO track_stats (track_id, play_count, last_played, liked) "
+                            + DatabaseManager.TRACK_STATS_AGGREGATE_SQL);
+        }));
+
+        // Ga pakai FK ke tracks: kuncinya videoId, bukan id track
+        MIGRATIONS.add(new Migration(12, "Create stream_url_cache", conn -> execute(conn,
+                """
+                CREATE TABLE IF NOT EXISTS stream_url_cache (
+                    video_id VARCHAR(255) PRIMARY KEY,
+                    url VARCHAR(8192) NOT NULL,
+                    expires_at BIGINT NOT NULL,
+                    cached_at TIMESTAMP
+                )
+                """)));
+    }
+
+    private final ConnectionPool pool;
+
+    SchemaMigrator(ConnectionPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Jalankan semua migrasi yang versinya > versi schema sekarang
+     */
+    void migrate() throws SQLException {
+        try (Connection conn = pool.getConnection()) {
+            execute(conn, """
+                CREATE TABLE IF NOT EXISTS schema_version (
+                    version INT PRIMARY KEY,
+                    description VARCHAR(255),
+                    applied_at TIMESTAMP
+                )
+                """);
+
+            int current = getCurrentVersion(conn);
+            int latest = MIGRATIONS.get(MIGRATIONS.size() - 1).version;
+            if (current >= latest) {
+                return;
+            }
+
+            System.out.println("🔧 Migrating database schema v" + current + " → v" + latest);
+
+            for (Migration migration : MIGRATIONS) {
+                if (migration.version <= current) {
+                    continue;
+                }
+
+                boolean autoCommit = conn.getAutoCommit();
+                conn.setAutoCommit(false);
+                try {
+                    migration.step.apply(conn);
+                    recordVersion(conn, migration);
+                    conn.commit();
+                    System.out.println("   ✅ v" + migration.version + ": " + migration.description);
+                } catch (SQLException e) {
+                    conn.rollback();
+                    System.err.println("   ❌ v" + migration.version + " failed: " + e.getMessage());
+                    throw e;
+                } finally {
+                    conn.setAutoCommit(autoCommit);
+                }
+            }
+        }
+    }
+
+    int getCurrentVersion(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COALESCE(MAX(version), 0) FROM schema_version")) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    private void recordVersion(Connection conn, Migration migration) throws SQLException {
+        String sql = "INSERT INTO schema_version (version, description, applied_at) VALUES (?, ?, CURRENT_TIMESTAMP)";
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setInt(1, migration.version);
+            pstmt.setString(2, migration.description);
+            pstmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Isi dedup_key dari kolom artist/title lama. Track paling lama (added_date, id) jadi pemilik,
+     * sisanya duplikat (NULL)
+     */
+    private static void backfillDedupKeys(Connection conn) throws SQLException {
+        Set<String> owned = new HashSet<>();
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT id, artist, title FROM tracks ORDER BY added_date, id");
+             PreparedStatement update = conn.prepareStatement("UPDATE tracks SET dedup_key = ? WHERE id = ?")) {
+            int pending = 0;
+            while (rs.next()) {
+                String key = TrackNormalizer.dedupKey(rs.getString("artist"), rs.getString("title"));
+                update.setString(1, owned.add(key) ? key : null);
+                update.setString(2, rs.getString("id"));
+                update.addBatch();
+                if (++pending % 500 == 0) {
+                    update.executeBatch();
+                }
+            }
+            update.executeBatch();
+        }
+    }
+
+    /**
+     * Tautkan tiap duplikat ke pemilik dedup_key yang sama (key dihitung ulang dari track_view)
+     */
+    private static void backfillAliases(Connection conn) throws SQLException {
+        Map<String, String> owners = new HashMap<>();
+        List<String[]> duplicates = new ArrayList<>();
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT id, artist, title, dedup_key FROM track_view")) {
+            while (rs.next()) {
+                String key = rs.getString("dedup_key");
+                if (key != null) {
+                    owners.put(key, rs.getString("id"));
+                } else {
+                    duplicates.add(new String[]{rs.getString("id"),
+                            TrackNormalizer.dedupKey(rs.getString("artist"), rs.getString("title"))});
+                }
+            }
+        }
+
+        try (PreparedStatement merge = conn.prepareStatement(
+                "MERGE INTO track_aliases (alias_id, canonical_id) KEY (alias_id) VALUES (?, ?)")) {
+            for (String[] duplicate : duplicates) {
+                String owner = owners.get(duplicate[1]);
+                if (owner != null) {
+                    merge.setString(1, duplicate[0]);
+                    merge.setString(2, owner);
+                    merge.addBatch();
+                }
+            }
+            merge.executeBatch();
+        }
+    }
+
+    private static boolean columnExists(Connection conn, String table, String column) throws SQLException {
+        return exists(conn, "SELECT 1 FROM INFORMATION_SCHEMA.COLUMNS WHERE TABLE_NAME = '" + table
+                + "' AND COLUMN_NAME = '" + column + "'");
+    }
+
+    private static boolean exists(Connection conn, String query) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(query)) {
+            return rs.next();
+        }
+    }
+
+    private static void execute(Connection conn, String... statements) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            for (String sql : statements) {
+                stmt.execute(sql);
+            }
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package com.musicplayer.repository;
+
+import com.musicplayer.model.Track;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Cache Track di depan H2 (read-through dari DatabaseManager).
+ * LRU dibatasi cache.max.size, tiap entry expire setelah cache.ttl.minutes.
+ * Snapshot getAllTracks juga di-cache selama jumlahnya muat di max size.
+ * Semua di-invalidate waktu track disimpan.
+ *
+ * Track itu mutable (enrichment, TrackNormalizer.clean di saveTracks, dll), jadi yang
+ * disimpan dan yang dibalikin selalu copy: edit di caller ga bocor ke entry cache.
+ */
+public class TrackCache {
+
+    private final boolean enabled;
+    private final int maxSize;
+    private final long ttlMillis;
+
+    private final LinkedHashMap<String, Entry<Track>> entries;
+    private Entry<List<Track>> library;
+    // Naik tiap invalidate, biar hasil query yang keburu basi ga masuk cache
+    private long generation;
+
+    // Metrics
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long expirations;
+    private long invalidations;
+
+    public TrackCache(boolean enabled, int maxSize, long ttlMillis) {
+        this.enabled = enabled && maxSize > 0;
+        this.maxSize = Math.max(0, maxSize);
+        this.ttlMillis = ttlMillis;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry<Track>> eldest) {
+                if (size() > TrackCache.this.maxSize) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Return track dari cache, atau null kalau miss / expired
+     */
+    public synchronized Track get(String trackId) {
+        if (!enabled || trackId == null) {
+            return null;
+        }
+
+        Entry<Track> entry = entries.get(trackId);
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        if (entry.isExpired()) {
+            entries.remove(trackId);
+            expirations++;
+            misses++;
+            return null;
+        }
+        hits++;
+        return copyOf(entry.value);
+    }
+
+    public synchronized long getGeneration() {
+        return generation;
+    }
+
+    /**
+     * Simpen hasil baca DB. generation = nilai getGeneration() sebelum query,
+     * kalau ada save di antaranya hasilnya dibuang.
+     */
+    public synchronized void put(Track track, long generation) {
+        if (!enabled || track == null || track.getId() == null || generation != this.generation) {
+            return;
+        }
+        entries.put(track.getId(), new Entry<>(copyOf(track), System.currentTimeMillis() + ttlMillis));
+    }
+
+    /**
+     * Snapshot semua track (copy), null kalau belum ada / expired
+     */
+    public synchronized List<Track> getLibrary() {
+        if (!enabled) {
+            return null;
+        }
+        if (library == null) {
+            misses++;
+            return null;
+        }
+        if (library.isExpired()) {
+            library = null;
+            expirations++;
+            misses++;
+            return null;
+        }
+        hits++;
+        return copyOf(library.value);
+    }
+
+    public synchronized void putLibrary(List<Track> tracks, long generation) {
+        if (!enabled || tracks.size() > maxSize || generation != this.generation) {
+            return;
+        }
+        library = new Entry<>(copyOf(tracks), System.currentTimeMillis() + ttlMillis);
+    }
+
+    private static List<Track> copyOf(List<Track> tracks) {
+        List<Track> copy = new ArrayList<>(tracks.size());
+        for (Track track : tracks) {
+            copy.add(copyOf(track));
+        }
+        return copy;
+    }
+
+    private static Track copyOf(Track track) {
+        Track copy = new Track(track.getId(), track.getTitle(), track.getArtist());
+        copy.setAlbum(track.getAlbum());
+        copy.setGenre(track.getGenre());
+        copy.setDuration(track.getDuration());
+        copy.setBpm(track.getBpm());
+        copy.setMood(track.getMood());
+        copy.setYoutubeId(track.getYoutubeId());
+        copy.setThumbnailUrl(track.getThumbnailUrl());
+        copy.setAddedDate(track.getAddedDate());
+        return copy;
+    }
+
+    public synchronized void invalidate(Collection<Track> tracks) {
+        if (!enabled) {
+            return;
+        }
+        generation++;
+        for (Track track : tracks) {
+            if (track.getId() != null && entries.remove(track.getId()) != null) {
+                invalidations++;
+            }
+        }
+        if (library != null) {
+            library = null;
+            invalidations++;
+        }
+    }
+
+    public synchronized void clear() {
+        generation++;
+        invalidations += entries.size();
+        entries.clear();
+        library = null;
+    }
+
+    /**
+     * Buang entry yang udah expired (dipanggil opsional, get() juga ngecek sendiri)
+     */
+    public synchronized void purgeExpired() {
+        Iterator<Entry<Track>> it = entries.values().iterator();
+        while (it.hasNext()) {
+            if (it.next().isExpired()) {
+                it.remove();
+                expirations++;
+            }
+        }
+    }
+
+    // ========== Metrics ==========
+
+    public synchronized int size() { return entries.size(); }
+    public synchronized long getHitCount() { return hits; }
+    public synchronized long getMissCount() { return misses; }
+    public synchronized long getEvictionCount() { return evictions; }
+    public synchronized long getExpirationCount() { return expirations; }
+    public synchronized long getInvalidationCount() { return invalidations; }
+
+    public synchronized double getHitRate() {
+        long total = hits + misses;
+        return total == 0 ? 0.0 : (double) hits / total;
+    }
+
+    @Override
+    public synchronized String toString() {
+        if (!enabled) {
+            return "disabled";
+        }
+        return String.format("size=%d/%d, hits=%d, misses=%d, hitRate=%.1f%%, evictions=%d, expirations=%d, invalidations=%d",
+                entries.size(), maxSize, hits, misses, getHitRate() * 100, evictions, expirations, invalidations);
+    }
+
+    private static class Entry<V> {
+        final V value;
+        final long expiresAt;
+
+        Entry(V value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+
+        boolean isExpired() {
+            return System.currentTimeMillis() >= expiresAt;
+        }
+    }
+}
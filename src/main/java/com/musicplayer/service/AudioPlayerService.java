@@ -1,12 +1,15 @@
 package com.musicplayer.service;
 
 import com.musicplayer.model.Track;
+import com.musicplayer.util.ConfigLoader;
 import uk.co.caprica.vlcj.player.base.MediaPlayer;
 import uk.co.caprica.vlcj.player.base.MediaPlayerEventAdapter;
 import uk.co.caprica.vlcj.player.component.AudioPlayerComponent;
 
 import javax.swing.*;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.List;
 
 // Service utk play audio
@@ -14,20 +17,31 @@ public class AudioPlayerService {
 
     private AudioPlayerComponent audioPlayer;
     private YouTubeMusicService youtubeService;
+    private StreamPrefetcher prefetcher;
+    private final int preloadCount;
 
-    private Track currentTrack;
+    private volatile Track currentTrack;
+    // queue, currentIndex, shuffleOrder & queueVersion cuma boleh disentuh sambil pegang queueLock:
+    // diubah dari EDT, Swing Timer & thread finished, dibaca thread fetch buat prefetch
+    private final Object queueLock = new Object();
     private List<Track> queue;
     private int currentIndex;
-    private boolean isPlaying;
-    private boolean isRepeat;
-    private boolean isShuffle;
+    private long queueVersion;
+    private volatile boolean isPlaying;
+    private volatile boolean isRepeat;
+    private volatile boolean isShuffle;
+    private volatile boolean isRadio;
+    // Shuffle: index lagu berikutnya udah diundi duluan, biar prefetch tau urutannya
+    private final Deque<Integer> shuffleOrder = new ArrayDeque<>();
 
     private List<PlayerStateListener> listeners;
+    private volatile QueueContinuationProvider continuationProvider;
+    private volatile RadioService radioService;
     private volatile boolean isProcessingNext = false;
     private volatile int retryCount = 0;
     private static final int MAX_RETRIES = 2; // Maximum retry attempts
 
-    public AudioPlayerService() {
+    public AudioPlayerService(YouTubeMusicService youtubeService) {
         try {
             // Check VLC installation first
             System.out.println("🔍 Checking VLC installation...");
@@ -53,7 +67,9 @@ public class AudioPlayerService {
             throw new RuntimeException("Cannot initialize audio player. Please install VLC Media Player.", e);
         }
 
-        this.youtubeService = new YouTubeMusicService();
+        this.youtubeService = youtubeService; // Dipakai bareng controller
+        this.prefetcher = new StreamPrefetcher(youtubeService);
+        this.preloadCount = Math.max(0, ConfigLoader.getInt("advanced.preload.tracks", 5));
         this.queue = new ArrayList<>();
         this.currentIndex = -1;
         this.isPlaying = false;
@@ -89,10 +105,7 @@ public class AudioPlayerService {
                     isProcessingNext = true;
                     new Thread(() -> {
                         try {
-                            Thread.sleep(500); // Small delay
-                            playNext();
-                        } catch (InterruptedException e) {
-                            Thread.currentThread().interrupt();
+                            playNext(); // URL berikutnya biasanya udah di-prefetch
                         } finally {
                             isProcessingNext = false;
                         }
@@ -142,6 +155,8 @@ public class AudioPlayerService {
     private void refreshStreamAndRetry() {
         new Thread(() -> {
             try {
+                // URL lama (bisa jadi dari cache) yang barusan gagal, resolve ulang
+                youtubeService.invalidateStreamUrl(currentTrack.getYoutubeId());
                 String newUrl = youtubeService.getStreamUrl(currentTrack.getYoutubeId());
                 if (newUrl != null) {
                     SwingUtilities.invokeLater(() -> {
@@ -175,13 +190,15 @@ public class AudioPlayerService {
 
         currentTrack = track;
         SwingUtilities.invokeLater(() -> notifyTrackChanged(track));
+        topUpRadio();
 
         // Fetch stream URL in background thread
         new Thread(() -> {
             try {
                 System.out.println("🔄 Fetching stream for: " + track.getArtist() + " - " + track.getTitle());
 
-                String streamUrl = youtubeService.getStreamUrl(track.getYoutubeId());
+                String streamUrl = prefetcher.resolve(track.getYoutubeId());
+                prefetchUpcoming();
 
                 if (streamUrl != null && !streamUrl.isEmpty()) {
                     System.out.println("📡 Stream URL obtained: " + streamUrl.substring(0, Math.min(100, streamUrl.length())) + "...");
@@ -199,7 +216,7 @@ public class AudioPlayerService {
                                 System.err.println("❌ Failed to start playback (play() returned false)");
                                 notifyError("Failed to start playback");
                                 // Auto skip if queue has more tracks
-                                if (queue.size() > 1) {
+                                if (queueSize() > 1) {
                                     Timer timer = new Timer(2000, e -> playNext());
                                     timer.setRepeats(false);
                                     timer.start();
@@ -216,7 +233,7 @@ public class AudioPlayerService {
                     SwingUtilities.invokeLater(() -> {
                         notifyError("Could not get stream URL");
                         // Auto skip after delay
-                        if (queue.size() > 1) {
+                        if (queueSize() > 1) {
                             Timer timer = new Timer(2000, e -> playNext());
                             timer.setRepeats(false);
                             timer.start();
@@ -229,7 +246,7 @@ public class AudioPlayerService {
                 SwingUtilities.invokeLater(() -> {
                     notifyError("Error: " + e.getMessage());
                     // Auto skip
-                    if (queue.size() > 1) {
+                    if (queueSize() > 1) {
                         Timer timer = new Timer(2000, e2 -> playNext());
                         timer.setRepeats(false);
                         timer.start();
@@ -240,8 +257,16 @@ public class AudioPlayerService {
     }
 
     public void play() {
-        if (currentTrack == null && !queue.isEmpty()) {
-            playTrack(queue.get(0));
+        Track first = null;
+        if (currentTrack == null) {
+            synchronized (queueLock) {
+                if (!queue.isEmpty()) {
+                    first = queue.get(0);
+                }
+            }
+        }
+        if (first != null) {
+            playTrack(first);
         } else {
             audioPlayer.mediaPlayer().controls().play();
         }
@@ -266,38 +291,190 @@ public class AudioPlayerService {
     }
 
     public void playNext() {
-        if (queue.isEmpty()) {
-            return;
+        Track next;
+        long version;
+        synchronized (queueLock) {
+            if (queue.isEmpty()) {
+                return;
+            }
+            next = advance();
+            version = queueVersion;
         }
 
+        if (next == null) {
+            // Provider bisa lama (hitung rekomendasi), jadi dipanggil di luar lock
+            next = continueQueue(version);
+            if (next == null) {
+                stop();
+                return;
+            }
+        }
+
+        playTrack(next);
+    }
+
+    /**
+     * Geser currentIndex ke lagu berikutnya; null kalau queue habis dan ga repeat.
+     * Harus dipanggil sambil pegang queueLock
+     */
+    private Track advance() {
         if (isShuffle) {
-            currentIndex = (int) (Math.random() * queue.size());
-        } else {
+            currentIndex = nextShuffleIndex();
+        } else if (currentIndex + 1 < queue.size()) {
             currentIndex++;
-            if (currentIndex >= queue.size()) {
-                if (isRepeat) {
-                    currentIndex = 0;
-                } else {
-                    stop();
-                    return;
+        } else if (isRepeat) {
+            currentIndex = 0;
+        } else {
+            return null;
+        }
+        return queue.get(currentIndex);
+    }
+
+    private int nextShuffleIndex() {
+        Integer next = shuffleOrder.pollFirst();
+        return next != null && next < queue.size() ? next : drawShuffleIndex();
+    }
+
+    private int queueSize() {
+        synchronized (queueLock) {
+            return queue.size();
+        }
+    }
+
+    private int drawShuffleIndex() {
+        return (int) (Math.random() * queue.size());
+    }
+
+    /**
+     * Index lagu yang bakal diputer berikutnya (maks preloadCount), urut sesuai shuffle / repeat.
+     * Harus dipanggil sambil pegang queueLock
+     */
+    private List<Integer> upcomingIndexes() {
+        List<Integer> upcoming = new ArrayList<>();
+        if (queue.isEmpty() || preloadCount == 0) {
+            return upcoming;
+        }
+
+        if (isShuffle) {
+            while (shuffleOrder.size() < preloadCount) {
+                shuffleOrder.addLast(drawShuffleIndex());
+            }
+            for (int index : shuffleOrder) {
+                if (upcoming.size() == preloadCount) {
+                    break;
                 }
+                upcoming.add(index);
             }
+            return upcoming;
         }
 
-        playTrack(queue.get(currentIndex));
+        for (int i = 1; i <= preloadCount; i++) {
+            int index = currentIndex + i;
+            if (index >= queue.size()) {
+                if (!isRepeat) {
+                    break;
+                }
+                index %= queue.size();
+            }
+            if (index == currentIndex) {
+                break;
+            }
+            upcoming.add(index);
+        }
+        return upcoming;
+    }
+
+    /**
+     * Minta prefetcher resolve stream URL lagu-lagu berikutnya (daftar lama otomatis basi).
+     * Daftarnya di-snapshot di bawah lock, prefetcher-nya dipanggil di luar
+     */
+    private void prefetchUpcoming() {
+        List<Track> upcoming = new ArrayList<>();
+        synchronized (queueLock) {
+            for (int index : upcomingIndexes()) {
+                if (index < queue.size()) {
+                    upcoming.add(queue.get(index));
+                }
+            }
+        }
+        prefetcher.prefetch(upcoming);
     }
 
-    public void playPrevious() {
-        if (queue.isEmpty()) {
+    /**
+     * Radio mode: jaga minimal lookahead lagu setelah currentIndex di queue,
+     * ambil dari buffer radio (udah dihitung di background) lalu minta buffer diisi lagi
+     */
+    private void topUpRadio() {
+        RadioService radio = radioService;
+        if (!isRadio || radio == null || isRepeat) {
             return;
         }
 
-        currentIndex--;
-        if (currentIndex < 0) {
+        List<Track> snapshot;
+        synchronized (queueLock) {
+            int upcoming = queue.size() - 1 - currentIndex;
+            while (upcoming < radio.getLookahead()) {
+                Track next = radio.poll();
+                if (next == null) {
+                    break;
+                }
+                queue.add(next);
+                upcoming++;
+            }
+            snapshot = new ArrayList<>(queue);
+        }
+        radio.refill(currentTrack, snapshot);
+    }
+
+    /**
+     * Queue habis: minta lanjutan ke provider (kalau ada) dan tambahin ke akhir queue.
+     * Kalau queue keburu diganti (versi beda) hasilnya dibuang
+     */
+    private Track continueQueue(long version) {
+        QueueContinuationProvider provider = isRadio && radioService != null ? radioService : continuationProvider;
+        if (provider == null) {
+            return null;
+        }
+
+        Track next = provider.nextTrack(currentTrack, getQueue());
+        if (next == null || next.getYoutubeId() == null) {
+            return null;
+        }
+
+        synchronized (queueLock) {
+            if (version != queueVersion) {
+                return null;
+            }
+            queue.add(next);
             currentIndex = queue.size() - 1;
         }
+        System.out.println("🔮 Queue ended, continuing with: " + next.getArtist() + " - " + next.getTitle());
+        return next;
+    }
+
+    public void setContinuationProvider(QueueContinuationProvider provider) {
+        this.continuationProvider = provider;
+    }
+
+    public void setRadioService(RadioService radioService) {
+        this.radioService = radioService;
+    }
+
+    public void playPrevious() {
+        Track previous;
+        synchronized (queueLock) {
+            if (queue.isEmpty()) {
+                return;
+            }
+
+            currentIndex--;
+            if (currentIndex < 0 || currentIndex >= queue.size()) {
+                currentIndex = queue.size() - 1;
+            }
+            previous = queue.get(currentIndex);
+        }
 
-        playTrack(queue.get(currentIndex));
+        playTrack(previous);
     }
 
     public void seekTo(long seconds) {
@@ -330,36 +507,85 @@ public class AudioPlayerService {
     }
 
     public void setQueueAndPlay(List<Track> tracks, int startIndex) {
-        this.queue = new ArrayList<>(tracks);
-        this.currentIndex = startIndex;
-        if (!queue.isEmpty() && startIndex >= 0 && startIndex < queue.size()) {
-            playTrack(queue.get(startIndex));
+        if (radioService != null) {
+            radioService.clear(); // Buffer lama seed-nya dari queue sebelumnya
+        }
+        Track start = null;
+        synchronized (queueLock) {
+            queue = new ArrayList<>(tracks);
+            currentIndex = startIndex;
+            queueVersion++;
+            shuffleOrder.clear();
+            if (startIndex >= 0 && startIndex < queue.size()) {
+                start = queue.get(startIndex);
+            }
+        }
+        prefetcher.cancel();
+        if (start != null) {
+            playTrack(start);
         }
     }
 
     public void addToQueue(Track track) {
-        queue.add(track);
-        if (queue.size() == 1) {
-            currentIndex = 0;
+        boolean first;
+        synchronized (queueLock) {
+            queue.add(track);
+            first = queue.size() == 1;
+            if (first) {
+                currentIndex = 0;
+            }
+        }
+        if (first) {
             playTrack(track);
+        } else if (currentTrack != null) {
+            prefetchUpcoming();
         }
     }
 
     public void clearQueue() {
-        queue.clear();
-        currentIndex = -1;
+        synchronized (queueLock) {
+            queue.clear();
+            currentIndex = -1;
+            queueVersion++;
+            shuffleOrder.clear();
+        }
+        prefetcher.cancel();
     }
 
     public List<Track> getQueue() {
-        return new ArrayList<>(queue);
+        synchronized (queueLock) {
+            return new ArrayList<>(queue);
+        }
     }
 
     public void toggleRepeat() {
         isRepeat = !isRepeat;
+        if (currentTrack != null) {
+            prefetchUpcoming();
+        }
     }
 
     public void toggleShuffle() {
-        isShuffle = !isShuffle;
+        synchronized (queueLock) {
+            isShuffle = !isShuffle;
+            shuffleOrder.clear();
+        }
+        if (currentTrack != null) {
+            prefetchUpcoming();
+        }
+    }
+
+    public void toggleRadio() {
+        isRadio = !isRadio;
+        if (isRadio) {
+            topUpRadio();
+        } else if (radioService != null) {
+            radioService.clear();
+        }
+    }
+
+    public boolean isRadio() {
+        return isRadio;
     }
 
     public boolean isRepeat() {
@@ -404,6 +630,7 @@ public class AudioPlayerService {
 
   // Safe shutdown biar ga error
     public void release() {
+        prefetcher.shutdown();
         try {
             if (audioPlayer != null) {
                 audioPlayer.mediaPlayer().controls().stop();
@@ -414,6 +641,13 @@ public class AudioPlayerService {
         }
     }
 
+    /**
+     * Sumber lagu lanjutan waktu queue habis (dipasang controller)
+     */
+    public interface QueueContinuationProvider {
+        Track nextTrack(Track current, List<Track> queue);
+    }
+
     public interface PlayerStateListener {
         void onPlayerStateChanged(boolean isPlaying);
         void onTrackChanged(Track track);
@@ -0,0 +1,205 @@
+package com.musicplayer.service;
+
+import com.musicplayer.model.PlayHistory;
+import com.musicplayer.model.TrackNeighbor;
+import com.musicplayer.repository.DatabaseManager;
+import com.musicplayer.util.ConfigLoader;
+
+import java.sql.SQLException;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Item-item collaborative filtering dari play_history.
+ * History dipecah jadi sesi (jeda > cf.session.gap.minutes = sesi baru),
+ * tiap track jadi vector biner sesi, similarity = cosine co-occurrence:
+ *   sim(a, b) = sesi(a & b) / sqrt(sesi(a) * sesi(b))
+ *
+ * Top-N tetangga per track di-build di background dan disimpan di track_cf_neighbors,
+ * jadi waktu request cuma baca tetangga, ga pernah hitung similarity.
+ * Build ulang cuma kalau ada play baru sejak build terakhir.
+ */
+public class CollaborativeFilteringService implements DatabaseManager.DataChangeListener {
+
+    private final DatabaseManager dbManager;
+    private final boolean enabled;
+    private final double minSimilarity;
+    private final int neighborhoodSize;
+    private final int minCooccurrence;
+    private final long sessionGapMillis;
+    private final int maxSessionTracks;
+    private final ScheduledExecutorService scheduler;
+    private final AtomicBoolean dirty = new AtomicBoolean(true);
+    private final AtomicLong version = new AtomicLong();
+
+    public CollaborativeFilteringService(DatabaseManager dbManager) {
+        this.dbManager = dbManager;
+        this.enabled = ConfigLoader.getBoolean("cf.enabled", true);
+        this.minSimilarity = ConfigLoader.getDouble("cf.min.similarity", 0.5);
+        this.neighborhoodSize = Math.max(1, ConfigLoader.getInt("cf.neighborhood.size", 10));
+        this.minCooccurrence = Math.max(1, ConfigLoader.getInt("cf.min.cooccurrence", 2));
+        this.sessionGapMillis = Math.max(1, ConfigLoader.getInt("cf.session.gap.minutes", 30)) * 60_000L;
+        this.maxSessionTracks = Math.max(2, ConfigLoader.getInt("cf.session.max.tracks", 50));
+
+        if (enabled) {
+            int interval = Math.max(1, ConfigLoader.getInt("cf.rebuild.interval.minutes", 30));
+            this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "cf-builder");
+                t.setDaemon(true);
+                t.setPriority(Thread.MIN_PRIORITY);
+                return t;
+            });
+            scheduler.scheduleWithFixedDelay(this::rebuildIfDirty, 10, interval * 60L, TimeUnit.SECONDS);
+        } else {
+            this.scheduler = null;
+        }
+    }
+
+    @Override
+    public void onPlaysRecorded(List<PlayHistory> plays) {
+        dirty.set(true);
+    }
+
+    /**
+     * Naik tiap tetangga CF selesai di-build ulang
+     */
+    public long getVersion() {
+        return version.get();
+    }
+
+    /**
+     * Tetangga CF untuk satu track (lookup doang). Kosong kalau CF mati / belum ada data.
+     */
+    public List<TrackNeighbor> getNeighbors(String trackId) {
+        if (!enabled || trackId == null) {
+            return Collections.emptyList();
+        }
+        try {
+            return dbManager.getCfNeighbors(trackId, neighborhoodSize);
+        } catch (SQLException e) {
+            System.err.println("⚠️ Failed to read CF neighbors: " + e.getMessage());
+            return Collections.emptyList();
+        }
+    }
+
+    private void rebuildIfDirty() {
+        if (!dirty.getAndSet(false)) {
+            return;
+        }
+        try {
+            rebuild();
+        } catch (Exception e) {
+            dirty.set(true); // Coba lagi di jadwal berikutnya
+            System.err.println("❌ CF rebuild failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Build ulang semua tetangga CF dari play_history
+     */
+    public void rebuild() throws SQLException {
+        long start = System.currentTimeMillis();
+
+        Map<String, Integer> indexById = new HashMap<>();
+        List<String> ids = new ArrayList<>();
+        int[] sessionCounts = new int[64];
+        Map<Long, int[]> cooccurrence = new HashMap<>();
+
+        Set<Integer> session = new LinkedHashSet<>();
+        long lastPlayed = 0;
+        int sessions = 0;
+
+        try (Stream<PlayHistory> history = dbManager.streamPlayHistory()) {
+            Iterator<PlayHistory> it = history.iterator();
+            while (it.hasNext()) {
+                PlayHistory play = it.next();
+                long playedAt = play.getPlayedAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+
+                if (!session.isEmpty()
+                        && (playedAt - lastPlayed > sessionGapMillis || session.size() >= maxSessionTracks)) {
+                    sessionCounts = closeSession(session, sessionCounts, cooccurrence);
+                    sessions++;
+                }
+                lastPlayed = playedAt;
+
+                Integer index = indexById.get(play.getTrackId());
+                if (index == null) {
+                    index = ids.size();
+                    indexById.put(play.getTrackId(), index);
+                    ids.add(play.getTrackId());
+                }
+                session.add(index);
+            }
+        }
+        if (!session.isEmpty()) {
+            sessionCounts = closeSession(session, sessionCounts, cooccurrence);
+            sessions++;
+        }
+
+        // Top-N per track dari semua pasangan yang lolos threshold
+        Map<Integer, TopKSelector> topNeighbors = new HashMap<>();
+        for (Map.Entry<Long, int[]> entry : cooccurrence.entrySet()) {
+            int count = entry.getValue()[0];
+            if (count < minCooccurrence) {
+                continue;
+            }
+            int a = (int) (entry.getKey() >>> 32);
+            int b = (int) (entry.getKey() & 0xFFFFFFFFL);
+            double similarity = count / Math.sqrt((double) sessionCounts[a] * sessionCounts[b]);
+            if (similarity < minSimilarity) {
+                continue;
+            }
+            topNeighbors.computeIfAbsent(a, k -> new TopKSelector(neighborhoodSize)).offer(b, similarity);
+            topNeighbors.computeIfAbsent(b, k -> new TopKSelector(neighborhoodSize)).offer(a, similarity);
+        }
+
+        List<TrackNeighbor> neighbors = new ArrayList<>();
+        for (Map.Entry<Integer, TopKSelector> entry : topNeighbors.entrySet()) {
+            String trackId = ids.get(entry.getKey());
+            TopKSelector selector = entry.getValue();
+            int count = selector.sortDescending();
+            for (int rank = 0; rank < count; rank++) {
+                neighbors.add(new TrackNeighbor(trackId, ids.get(selector.indexAt(rank)), selector.scoreAt(rank)));
+            }
+        }
+
+        dbManager.replaceCfNeighbors(neighbors);
+        version.incrementAndGet();
+        System.out.println("🤝 CF neighbors rebuilt: " + topNeighbors.size() + " tracks, " + neighbors.size()
+                + " pairs from " + sessions + " sessions (" + (System.currentTimeMillis() - start) + "ms)");
+    }
+
+    /**
+     * Tutup sesi: tambah hitungan sesi per track dan co-occurrence per pasangan, lalu kosongkan sesi
+     */
+    private static int[] closeSession(Set<Integer> session, int[] sessionCounts, Map<Long, int[]> cooccurrence) {
+        int[] items = session.stream().mapToInt(Integer::intValue).sorted().toArray();
+        session.clear();
+
+        int maxIndex = items[items.length - 1];
+        if (maxIndex >= sessionCounts.length) {
+            sessionCounts = Arrays.copyOf(sessionCounts, Math.max(maxIndex + 1, sessionCounts.length * 2));
+        }
+
+        for (int x = 0; x < items.length; x++) {
+            sessionCounts[items[x]]++;
+            for (int y = x + 1; y < items.length; y++) {
+                long key = ((long) items[x] << 32) | items[y];
+                cooccurrence.computeIfAbsent(key, k -> new int[1])[0]++;
+            }
+        }
+        return sessionCounts;
+    }
+
+    public void shutdown() {
+        if (scheduler != null) {
+            scheduler.shutdown(); // Tanpa interrupt, H2 bisa nutup file channel kalau thread di-interrupt
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package com.musicplayer.service;
+
+import com.musicplayer.model.Track;
+import com.musicplayer.model.TrackNeighbor;
+import com.musicplayer.repository.DatabaseManager;
+import com.musicplayer.util.ConfigLoader;
+
+import java.sql.SQLException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * Precompute K tetangga content-based per track ke tabel track_neighbors.
+ * Startup: hitung track yang belum punya status (pertama kali = semua track).
+ * Track baru/berubah: hitung list tetangganya sendiri, plus masukin dia ke list
+ * track lain kalau similarity-nya ngalahin tetangga terlemah mereka.
+ *
+ * Catatan: kalau fitur track berubah, track lain yang tadinya punya dia sebagai tetangga
+ * bisa sisa < K entry sampai track itu dihitung ulang. Hasilnya tetap valid, cuma lebih pendek.
+ */
+public class ContentNeighborService implements DatabaseManager.DataChangeListener {
+
+    static final double MIN_SIMILARITY = 0.25;
+    private static final int BUILD_CHUNK_SIZE = 200;
+
+    private final DatabaseManager dbManager;
+    private final TrackFeatureStore featureStore;
+    private final ParallelScorer scorer;
+    private final boolean enabled;
+    private final int k;
+    private final ExecutorService executor;
+
+    private final Set<String> pending = ConcurrentHashMap.newKeySet();
+    private volatile boolean ready = false;
+
+    // Cuma diakses dari thread worker: trackId -> {jumlah tetangga, similarity terendah}
+    private final Map<String, double[]> admission = new HashMap<>();
+
+    public ContentNeighborService(DatabaseManager dbManager, TrackFeatureStore featureStore, ParallelScorer scorer) {
+        this.dbManager = dbManager;
+        this.featureStore = featureStore;
+        this.scorer = scorer;
+        this.enabled = ConfigLoader.getBoolean("recommendation.neighbors.enabled", true);
+        this.k = Math.max(1, ConfigLoader.getInt("recommendation.neighbors.size", 20));
+
+        if (enabled) {
+            this.executor = Executors.newSingleThreadExecutor(r -> {
+                Thread t = new Thread(r, "content-neighbors");
+                t.setDaemon(true);
+                t.setPriority(Thread.MIN_PRIORITY);
+                return t;
+            });
+            executor.submit(this::initialize);
+        } else {
+            this.executor = null;
+        }
+    }
+
+    /**
+     * Tetangga yang udah disimpan, atau null kalau belum up to date
+     * (caller harus fallback ke hitung on-the-fly)
+     */
+    public List<TrackNeighbor> getNeighbors(String trackId, int limit) {
+        if (!ready || trackId == null || limit > k || pending.contains(trackId)) {
+            return null;
+        }
+        try {
+            return dbManager.getContentNeighbors(trackId, limit);
+        } catch (SQLException e) {
+            System.err.println("⚠️ Failed to read track neighbors: " + e.getMessage());
+            return null;
+        }
+    }
+
+    @Override
+    public void onTracksSaved(List<Track> tracks) {
+        if (!enabled) {
+            return;
+        }
+        List<String> trackIds = new ArrayList<>();
+        for (Track track : tracks) {
+            if (track.getId() != null) {
+                trackIds.add(track.getId());
+            }
+        }
+        pending.addAll(trackIds);
+        executor.submit(() -> update(trackIds, true));
+    }
+
+    private void initialize() {
+        try {
+            featureStore.ensureLoaded();
+            List<String> missing = dbManager.getTracksWithoutContentNeighbors();
+
+            // Build pertama: semua track dihitung lengkap, reverse update ga perlu
+            boolean fullBuild = missing.size() >= featureStore.size();
+            if (!fullBuild) {
+                dbManager.forEachContentNeighborSummary(null,
+                        (trackId, count, min) -> admission.put(trackId, new double[]{count, min}));
+            }
+
+            if (!missing.isEmpty()) {
+                long start = System.currentTimeMillis();
+                System.out.println("🧭 Computing track neighbors for " + missing.size() + " tracks...");
+                for (int from = 0; from < missing.size(); from += BUILD_CHUNK_SIZE) {
+                    update(missing.subList(from, Math.min(missing.size(), from + BUILD_CHUNK_SIZE)), !fullBuild);
+                }
+                System.out.println("✅ Track neighbors ready (" + (System.currentTimeMillis() - start) + "ms)");
+            }
+            ready = true;
+        } catch (Exception e) {
+            System.err.println("❌ Track neighbor build failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Hitung ulang tetangga trackIds dan simpen (jalan di thread worker)
+     */
+    private void update(List<String> trackIds, boolean updateReverse) {
+        try {
+            featureStore.ensureLoaded();
+
+            Set<String> batch = new HashSet<>(trackIds);
+            List<String> computed = new ArrayList<>();
+            List<TrackNeighbor> forward = new ArrayList<>();
+            List<TrackNeighbor> reverse = new ArrayList<>();
+
+            Lock readLock = featureStore.readLock();
+            readLock.lock();
+            try {
+                for (String trackId : trackIds) {
+                    int index = featureStore.indexOf(trackId);
+                    if (index == TrackFeatureStore.NONE) {
+                        continue;
+                    }
+                    computed.add(trackId);
+
+                    TrackFeatureStore.FeatureVector vector = featureStore.vectorAt(index);
+                    int[] candidates = featureStore.similarityCandidates(vector);
+
+                    TopKSelector selector = scorer.selectTopK(candidates, k, MIN_SIMILARITY,
+                            i -> featureStore.contentSimilarity(i, vector));
+                    int count = selector.sortDescending();
+                    for (int rank = 0; rank < count; rank++) {
+                        forward.add(new TrackNeighbor(trackId,
+                                featureStore.trackId(selector.indexAt(rank)), selector.scoreAt(rank)));
+                    }
+
+                    if (updateReverse) {
+                        // Similarity simetris: cukup cek apakah lolos ke list K tetangga kandidat
+                        for (int i : candidates) {
+                            double similarity = featureStore.contentSimilarity(i, vector);
+                            String otherId = featureStore.trackId(i);
+                            if (similarity > MIN_SIMILARITY && !batch.contains(otherId)
+                                    && admits(otherId, similarity)) {
+                                reverse.add(new TrackNeighbor(otherId, trackId, similarity));
+                            }
+                        }
+                    }
+                }
+            } finally {
+                readLock.unlock();
+            }
+
+            Set<String> changed = dbManager.saveContentNeighbors(computed, forward, reverse, k);
+            changed.addAll(computed);
+            changed.forEach(admission::remove);
+            dbManager.forEachContentNeighborSummary(changed,
+                    (trackId, count, min) -> admission.put(trackId, new double[]{count, min}));
+        } catch (Exception e) {
+            System.err.println("❌ Track neighbor update failed: " + e.getMessage());
+        } finally {
+            trackIds.forEach(pending::remove);
+        }
+    }
+
+    private boolean admits(String trackId, double similarity) {
+        double[] summary = admission.get(trackId);
+        return summary == null || summary[0] < k || similarity > summary[1];
+    }
+
+    public void shutdown() {
+        if (executor != null) {
+            executor.shutdown(); // Tanpa interrupt (H2 file channel)
+        }
+    }
+}
@@ -21,7 +21,7 @@ public class MetadataEnrichmentService {
     private final Set<String> processingIds;
 
     public MetadataEnrichmentService() {
-        this.ytDlpService = new YtDlpService();
+        this.ytDlpService = YtDlpService.getInstance();
         this.dbManager = DatabaseManager.getInstance();
         this.executorService = Executors.newFixedThreadPool(2); // Max 2 concurrent enrichments
         this.processingIds = Collections.synchronizedSet(new HashSet<>());
@@ -32,70 +32,58 @@ public class MetadataEnrichmentService {
      * Call ini setelah track ditambahkan dari search
      */
     public void enrichTrackAsync(Track track) {
-        if (track == null || track.getYoutubeId() == null) {
-            return;
-        }
-
-        String videoId = track.getYoutubeId();
-
-        // Skip if already processing atau sudah ada metadata
-        if (processingIds.contains(videoId)) {
-            return;
-        }
-
-        // Skip if already has complete metadata
-        if (hasCompleteMetadata(track)) {
-            System.out.println("✅ Track already has complete metadata: " + track.getTitle());
-            return;
-        }
-
-        processingIds.add(videoId);
-
-        // Enrich in background
-        executorService.submit(() -> {
-            try {
-                enrichTrackSync(track);
-            } finally {
-                processingIds.remove(videoId);
-            }
-        });
+        enrichTracksAsync(Collections.singletonList(track));
     }
 
     /**
      * Enrich track metadata (synchronous)
      */
     public void enrichTrackSync(Track track) {
-        if (track == null || track.getYoutubeId() == null) {
+        if (track == null || track.getYoutubeId() == null || track.getYoutubeId().isEmpty()) {
             return;
         }
 
+        enrichMetadata(track);
+        saveTrack(track);
+    }
+
+    /**
+     * Ambil + isi metadata track, TANPA save ke database
+     */
+    private void enrichMetadata(Track track) {
         String videoId = track.getYoutubeId();
         System.out.println("🔄 Enriching metadata for: " + track.getTitle());
 
         try {
             // Get full info dari yt-dlp
-            JsonNode info = ytDlpService.getTrackInfo(videoId);
+            applyMetadata(track, ytDlpService.getTrackInfo(videoId));
+        } catch (Exception e) {
+            System.err.println("❌ Failed to enrich metadata: " + e.getMessage());
+            setDefaultMetadata(track);
+        }
+    }
 
+    /**
+     * Isi metadata track dari hasil yt-dlp (null = gagal, pakai default)
+     */
+    private void applyMetadata(Track track, JsonNode info) {
+        String videoId = track.getYoutubeId();
+        try {
             if (info == null) {
                 System.err.println("⚠️ Could not get track info for: " + videoId);
                 setDefaultMetadata(track);
-                saveTrack(track);
                 return;
             }
 
             // Extract metadata
             extractMetadata(track, info);
 
-            // Save updated track
-            saveTrack(track);
-
             System.out.println("✅ Metadata enriched: " + track.getTitle() +
                     " [Genre: " + track.getGenre() + ", Duration: " + track.getDuration() + "s]");
 
         } catch (Exception e) {
             System.err.println("❌ Failed to enrich metadata: " + e.getMessage());
             setDefaultMetadata(track);
-            saveTrack(track);
         }
     }
 
@@ -396,11 +384,71 @@ public class MetadataEnrichmentService {
         }
     }
 
+    private void saveTracks(List<Track> tracks) {
+        try {
+            dbManager.saveTracks(tracks);
+        } catch (SQLException e) {
+            System.err.println("Failed to save tracks: " + e.getMessage());
+        }
+    }
 
+    /**
+     * Enrich banyak track di background. Tiap track di-enrich paralel,
+     * hasilnya disimpan sekali jalan pakai batch save setelah semuanya selesai.
+     */
     public void enrichTracksAsync(List<Track> tracks) {
+        List<Track> pending = new ArrayList<>();
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+
         for (Track track : tracks) {
-            enrichTrackAsync(track);
+            // Sama kayak getTrackInfoBatch: id kosong ga bakal dapet future
+            if (track == null || track.getYoutubeId() == null || track.getYoutubeId().isEmpty()) {
+                continue;
+            }
+
+            String videoId = track.getYoutubeId();
+
+            // Skip if already has complete metadata
+            if (hasCompleteMetadata(track)) {
+                System.out.println("✅ Track already has complete metadata: " + track.getTitle());
+                continue;
+            }
+
+            // Skip if already processing
+            if (!processingIds.add(videoId)) {
+                continue;
+            }
+
+            pending.add(track);
+        }
+
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        // Satu proses yt-dlp buat semua track, hasil per track diproses begitu keluar
+        List<String> videoIds = new ArrayList<>();
+        for (Track track : pending) {
+            videoIds.add(track.getYoutubeId());
+        }
+        Map<String, CompletableFuture<JsonNode>> infos = ytDlpService.getTrackInfoBatch(videoIds);
+        for (Track track : pending) {
+            System.out.println("🔄 Enriching metadata for: " + track.getTitle());
+            // Id yang ga ada di map (harusnya ga kejadian) diperlakukan kayak info gagal: pakai default
+            futures.add(infos.getOrDefault(track.getYoutubeId(), CompletableFuture.completedFuture(null))
+                    .thenAcceptAsync(info -> applyMetadata(track, info), executorService));
         }
+
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]))
+                .whenComplete((ignored, error) -> {
+                    try {
+                        saveTracks(pending);
+                    } finally {
+                        for (Track track : pending) {
+                            processingIds.remove(track.getYoutubeId());
+                        }
+                    }
+                });
     }
 
 
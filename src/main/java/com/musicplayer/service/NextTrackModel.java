@@ -0,0 +1,269 @@
+package com.musicplayer.service;
+
+import com.musicplayer.model.PlayHistory;
+import com.musicplayer.repository.DatabaseManager;
+import com.musicplayer.util.ConfigLoader;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Model Markov orde-1 buat nebak lagu berikutnya: "habis A biasanya diputer B".
+ * Transisi cuma dihitung di dalam satu sesi (jeda <= cf.session.gap.minutes, sama kayak CF).
+ *
+ * Tabel transisi sparse (per track cuma simpen tujuan yang pernah kejadian),
+ * disimpan di track_transitions dan di-update incremental tiap play event.
+ * Lookup cuma HashMap + scan satu baris kecil, jadi aman dipanggil dari player thread.
+ *
+ * Di-load di background thread (backfill dari play_history bisa lama buat history gede);
+ * play event yang datang selama loading ditampung, lalu diputar ulang setelah selesai.
+ * Sebelum selesai predictNext balikin null.
+ *
+ * Monitor cuma dipegang buat update in-memory; tulis ke track_transitions jalan di thread
+ * writer sendiri, jadi predictNext dari player ga pernah nunggu I/O H2.
+ */
+public class NextTrackModel implements DatabaseManager.DataChangeListener {
+
+    private final DatabaseManager dbManager;
+    private final Duration sessionGap;
+    private final ExecutorService writer;
+
+    private Map<String, Row> transitions = new HashMap<>();
+    private String lastTrackId;
+    private LocalDateTime lastPlayedAt;
+    private boolean loaded = false;
+    private boolean failed = false;
+    // Play event yang masuk selama loading
+    private final List<PlayHistory> pending = new ArrayList<>();
+
+    public NextTrackModel(DatabaseManager dbManager) {
+        this.dbManager = dbManager;
+        this.sessionGap = Duration.ofMinutes(Math.max(1, ConfigLoader.getInt("cf.session.gap.minutes", 30)));
+        this.writer = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "transition-writer");
+            t.setDaemon(true);
+            return t;
+        });
+
+        Thread loader = new Thread(this::load, "transition-model-load");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    /**
+     * Load tabel transisi. DB lama yang belum punya transisi dibangun dari play_history.
+     * Sampai selesai, onPlaysRecorded cuma nampung event dan ga nyentuh lastTrackId/lastPlayedAt.
+     */
+    private void load() {
+        try {
+            Map<String, Row> table = new HashMap<>();
+            dbManager.loadTransitions((from, to, count) -> row(table, from).add(to, count));
+
+            // Play dengan id <= ini udah kehitung di backfill
+            long coveredUpTo = 0;
+            boolean rebuilt = table.isEmpty();
+            if (rebuilt) {
+                Map<String, Map<String, Integer>> counts = new HashMap<>();
+                long maxId = 0;
+                try (Stream<PlayHistory> history = dbManager.streamPlayHistory()) {
+                    Iterator<PlayHistory> it = history.iterator();
+                    while (it.hasNext()) {
+                        PlayHistory play = it.next();
+                        maxId = Math.max(maxId, play.getId() == null ? 0 : play.getId());
+                        String from = advance(play);
+                        if (from != null) {
+                            counts.computeIfAbsent(from, k -> new HashMap<>()).merge(play.getTrackId(), 1, Integer::sum);
+                        }
+                    }
+                }
+                coveredUpTo = maxId;
+                if (!counts.isEmpty()) {
+                    dbManager.addTransitionCounts(counts);
+                    counts.forEach((from, targets) -> targets.forEach((to, count) -> row(table, from).add(to, count)));
+                    System.out.println("✅ Transition model rebuilt: " + table.size() + " tracks");
+                }
+            }
+
+            // Posisi "lagu terakhir" dicari di luar lock (query DB)
+            PlayHistory resume = null;
+            if (!rebuilt) {
+                List<PlayHistory> snapshot;
+                synchronized (this) {
+                    snapshot = new ArrayList<>(pending);
+                }
+                resume = latestBefore(firstId(snapshot), snapshot.size());
+            }
+
+            synchronized (this) {
+                transitions = table;
+                List<PlayHistory> replay = new ArrayList<>();
+                for (PlayHistory play : pending) {
+                    if (play.getId() == null || play.getId() > coveredUpTo) {
+                        replay.add(play);
+                    }
+                }
+                pending.clear();
+                // Event yang masuk setelah query di atas bisa lebih tua dari resume: mulai tanpa posisi
+                if (resume != null && resume.getId() < firstId(replay)) {
+                    lastTrackId = resume.getTrackId();
+                    lastPlayedAt = resume.getPlayedAt();
+                }
+                loaded = true;
+                apply(replay);
+            }
+        } catch (SQLException | RuntimeException e) {
+            System.err.println("⚠️ Failed to load transition model: " + e.getMessage());
+            synchronized (this) {
+                failed = true;
+                pending.clear();
+            }
+        }
+    }
+
+    private static long firstId(List<PlayHistory> plays) {
+        long first = Long.MAX_VALUE;
+        for (PlayHistory play : plays) {
+            if (play.getId() != null) {
+                first = Math.min(first, play.getId());
+            }
+        }
+        return first;
+    }
+
+    /**
+     * Play terbaru sebelum event yang ditampung (tabelnya udah nyimpen transisi sampai situ,
+     * event yang ditampung belum), null kalau ga ada
+     */
+    private PlayHistory latestBefore(long firstPending, int pendingCount) throws SQLException {
+        for (PlayHistory play : dbManager.getPlayHistory(pendingCount + 1)) {
+            if (play.getId() != null && play.getId() < firstPending) {
+                return play;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public synchronized void onPlaysRecorded(List<PlayHistory> plays) {
+        if (failed) {
+            return; // Load gagal, model dimatikan
+        }
+        if (!loaded) {
+            pending.addAll(plays);
+            return;
+        }
+        apply(plays);
+    }
+
+    private void apply(List<PlayHistory> plays) {
+        Map<String, Map<String, Integer>> counts = new HashMap<>();
+        for (PlayHistory play : plays) {
+            String from = advance(play);
+            if (from != null) {
+                row(transitions, from).add(play.getTrackId(), 1);
+                counts.computeIfAbsent(from, k -> new HashMap<>()).merge(play.getTrackId(), 1, Integer::sum);
+            }
+        }
+
+        if (counts.isEmpty()) {
+            return;
+        }
+        // counts punya kita sendiri (ga dishare), aman dibaca writer tanpa lock
+        try {
+            writer.execute(() -> persist(counts));
+        } catch (RejectedExecutionException e) {
+            persist(counts); // Lagi shutdown: journal nge-flush sisa event, tulis langsung
+        }
+    }
+
+    private void persist(Map<String, Map<String, Integer>> counts) {
+        try {
+            dbManager.addTransitionCounts(counts);
+        } catch (SQLException e) {
+            System.err.println("❌ Failed to persist transitions: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Tunggu tulisan yang masih antri. Panggil sebelum DatabaseManager.close().
+     */
+    public void shutdown() {
+        writer.shutdown();
+        try {
+            writer.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Geser posisi "lagu terakhir". Return track sebelumnya kalau masih satu sesi (ada transisi).
+     */
+    private String advance(PlayHistory play) {
+        String from = null;
+        if (lastTrackId != null && !lastTrackId.equals(play.getTrackId())
+                && !play.getPlayedAt().isBefore(lastPlayedAt)
+                && Duration.between(lastPlayedAt, play.getPlayedAt()).compareTo(sessionGap) <= 0) {
+            from = lastTrackId;
+        }
+        lastTrackId = play.getTrackId();
+        lastPlayedAt = play.getPlayedAt();
+        return from;
+    }
+
+    private static Row row(Map<String, Row> transitions, String trackId) {
+        return transitions.computeIfAbsent(trackId, k -> new Row());
+    }
+
+    /**
+     * Lagu berikutnya yang paling sering diputer setelah trackId, selain yang ada di exclude.
+     * null kalau belum ada data.
+     */
+    public synchronized String predictNext(String trackId, Set<String> exclude) {
+        Row row = transitions.get(trackId);
+        if (row == null) {
+            return null;
+        }
+
+        String best = null;
+        int bestCount = 0;
+        for (int i = 0; i < row.size; i++) {
+            if (row.counts[i] > bestCount && !exclude.contains(row.targets[i])) {
+                best = row.targets[i];
+                bestCount = row.counts[i];
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Tujuan transisi dari satu track (array paralel, tumbuh sesuai kebutuhan)
+     */
+    private static final class Row {
+        String[] targets = new String[2];
+        int[] counts = new int[2];
+        int size = 0;
+
+        void add(String target, int count) {
+            for (int i = 0; i < size; i++) {
+                if (targets[i].equals(target)) {
+                    counts[i] += count;
+                    return;
+                }
+            }
+            if (size == targets.length) {
+                targets = Arrays.copyOf(targets, size * 2);
+                counts = Arrays.copyOf(counts, size * 2);
+            }
+            targets[size] = target;
+            counts[size++] = count;
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.musicplayer.service;
+
+import com.musicplayer.util.ConfigLoader;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Scoring kandidat 0..size-1 lalu ambil top-K.
+ * Library kecil: loop biasa di thread pemanggil.
+ * Library besar (>= recommendation.parallel.threshold) dan recommendation.parallel.enabled:
+ * range dipecah fork/join, tiap worker punya TopKSelector sendiri, lalu di-merge.
+ * Ukuran pool dari advanced.thread.pool.size.
+ */
+public class ParallelScorer {
+
+    /**
+     * Skor untuk satu index. Harus thread-safe (read-only) kalau mode paralel aktif.
+     */
+    @FunctionalInterface
+    public interface IndexScorer {
+        double score(int index);
+    }
+
+    private final boolean enabled;
+    private final int threshold;
+    private final ForkJoinPool pool;
+
+    public ParallelScorer() {
+        this.enabled = ConfigLoader.getBoolean("recommendation.parallel.enabled", false);
+        this.threshold = Math.max(1, ConfigLoader.getInt("recommendation.parallel.threshold", 20000));
+        int poolSize = Math.max(1, ConfigLoader.getInt("advanced.thread.pool.size", 4));
+        this.pool = enabled ? new ForkJoinPool(poolSize) : null;
+
+        if (enabled) {
+            System.out.println("⚙️ Parallel scoring enabled (threads=" + poolSize + ", threshold=" + threshold + ")");
+        }
+    }
+
+    /**
+     * Top-K dari semua index dengan skor > minScore
+     */
+    public TopKSelector selectTopK(int size, int k, double minScore, IndexScorer scorer) {
+        return select(null, size, k, minScore, scorer);
+    }
+
+    /**
+     * Sama, tapi cuma untuk index yang ada di candidates
+     */
+    public TopKSelector selectTopK(int[] candidates, int k, double minScore, IndexScorer scorer) {
+        return select(candidates, candidates.length, k, minScore, scorer);
+    }
+
+    private TopKSelector select(int[] candidates, int size, int k, double minScore, IndexScorer scorer) {
+        if (!enabled || size < threshold) {
+            return scoreRange(candidates, 0, size, k, minScore, scorer);
+        }
+
+        int chunk = Math.max(1024, size / (pool.getParallelism() * 4));
+        return pool.invoke(new ScoreTask(candidates, 0, size, chunk, k, minScore, scorer));
+    }
+
+    private static TopKSelector scoreRange(int[] candidates, int from, int to, int k,
+                                           double minScore, IndexScorer scorer) {
+        TopKSelector selector = new TopKSelector(k);
+        for (int pos = from; pos < to; pos++) {
+            int i = candidates == null ? pos : candidates[pos];
+            double score = scorer.score(i);
+            if (score > minScore) {
+                selector.offer(i, score);
+            }
+        }
+        return selector;
+    }
+
+    public void shutdown() {
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+
+    private static class ScoreTask extends RecursiveTask<TopKSelector> {
+        private final int[] candidates;
+        private final int from;
+        private final int to;
+        private final int chunk;
+        private final int k;
+        private final double minScore;
+        private final IndexScorer scorer;
+
+        ScoreTask(int[] candidates, int from, int to, int chunk, int k, double minScore, IndexScorer scorer) {
+            this.candidates = candidates;
+            this.from = from;
+            this.to = to;
+            this.chunk = chunk;
+            this.k = k;
+            this.minScore = minScore;
+            this.scorer = scorer;
+        }
+
+        @Override
+        protected TopKSelector compute() {
+            if (to - from <= chunk) {
+                return scoreRange(candidates, from, to, k, minScore, scorer);
+            }
+
+            int mid = (from + to) >>> 1;
+            ScoreTask left = new ScoreTask(candidates, from, mid, chunk, k, minScore, scorer);
+            ScoreTask right = new ScoreTask(candidates, mid, to, chunk, k, minScore, scorer);
+            left.fork();
+            TopKSelector result = right.compute();
+            result.merge(left.join());
+            return result;
+        }
+    }
+}
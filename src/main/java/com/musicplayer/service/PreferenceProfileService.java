@@ -0,0 +1,237 @@
+package com.musicplayer.service;
+
+import com.musicplayer.model.PlayHistory;
+import com.musicplayer.model.Track;
+import com.musicplayer.repository.DatabaseManager;
+import com.musicplayer.util.ConfigLoader;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Profil selera user: bobot per artist/genre/mood yang meluruh eksponensial
+ * (half-life dari recommendation.profile.half.life.days).
+ *
+ * Trik biar update O(1): tiap play nambah exp((t - epoch) / tau) ke bobotnya,
+ * jadi bobot lama ga perlu diluruhin satu-satu. Skala yang makin gede ke-cancel
+ * waktu dinormalisasi (dibagi total).
+ * Biar exp ga overflow (half-life pendek), epoch digeser maju begitu eksponennya lewat
+ * REBASE_EXPONENT; semua bobot dikali exp(-geser / tau) di langkah yang sama.
+ * Disimpan di tabel preference_profile (epoch = row kind "epoch"), di-update tiap ada play event.
+ */
+public class PreferenceProfileService implements DatabaseManager.DataChangeListener {
+
+    static final String ARTIST = "artist";
+    static final String GENRE = "genre";
+    static final String MOOD = "mood";
+    static final String TOTAL = "total";
+    static final String EPOCH = "epoch";
+
+    // Titik nol profil lama yang belum punya row epoch
+    static final LocalDateTime LEGACY_EPOCH = LocalDateTime.of(2024, 1, 1, 0, 0);
+    // exp(50) ~ 5e21, masih jauh dari batas double (exp(709))
+    private static final double REBASE_EXPONENT = 50;
+
+    private final DatabaseManager dbManager;
+    private final double decaySeconds;
+
+    private final Map<String, Map<String, Double>> weights = new HashMap<>();
+    private double total = 0.0;
+    private LocalDateTime epoch = LEGACY_EPOCH;
+    private boolean loaded = false;
+    // Play dengan id <= ini udah masuk hasil rebuild, jangan dihitung lagi di onPlaysRecorded
+    private long rebuiltUpTo = 0;
+    private final AtomicLong version = new AtomicLong();
+
+    public PreferenceProfileService(DatabaseManager dbManager) {
+        this.dbManager = dbManager;
+        double halfLifeDays = ConfigLoader.getDouble("recommendation.profile.half.life.days", 30);
+        this.decaySeconds = Math.max(1, halfLifeDays) * 86_400 / Math.log(2);
+        for (String kind : List.of(ARTIST, GENRE, MOOD)) {
+            weights.put(kind, new HashMap<>());
+        }
+    }
+
+    /**
+     * Load profil dari DB. Kalau kosong tapi udah ada history (DB lama), dibangun dari play_history.
+     */
+    public synchronized void ensureLoaded() throws SQLException {
+        if (loaded) {
+            return;
+        }
+
+        load();
+        // Total tak hingga = profil lama yang udah keburu overflow, bangun ulang aja
+        if (total == 0.0 || !Double.isFinite(total)) {
+            // Epoch = sekarang: semua play di history eksponennya <= 0, ga bisa overflow
+            rebuiltUpTo = dbManager.rebuildPreferenceProfile(LocalDateTime.now().withNano(0), decaySeconds);
+            if (rebuiltUpTo > 0) {
+                System.out.println("✅ Preference profile rebuilt from play history");
+            }
+            load(); // Epoch baru ikut ke-load walau history kosong
+        }
+        loaded = true;
+    }
+
+    private void load() throws SQLException {
+        weights.values().forEach(Map::clear);
+        total = 0.0;
+        epoch = LEGACY_EPOCH;
+        dbManager.loadPreferenceProfile((kind, value, weight) -> {
+            if (TOTAL.equals(kind)) {
+                total = weight;
+            } else if (EPOCH.equals(kind)) {
+                epoch = LocalDateTime.ofEpochSecond((long) weight, 0, ZoneOffset.UTC);
+            } else if (weights.containsKey(kind)) {
+                weights.get(kind).put(value, weight);
+            }
+        });
+    }
+
+    @Override
+    public synchronized void onPlaysRecorded(List<PlayHistory> plays) {
+        // Load (dan rebuild kalau perlu) duluan: delta yang ketulis sebelum rebuild bikin total != 0
+        // dan history lama ga pernah kebaca
+        try {
+            ensureLoaded();
+        } catch (SQLException e) {
+            System.err.println("❌ Failed to load preference profile: " + e.getMessage());
+            return;
+        }
+
+        List<PlayHistory> fresh = new ArrayList<>();
+        LocalDateTime latest = null;
+        for (PlayHistory play : plays) {
+            if (play.getId() != null && play.getId() <= rebuiltUpTo) {
+                continue; // Udah ke-commit sebelum rebuild, jadi udah dihitung
+            }
+            fresh.add(play);
+            if (latest == null || play.getPlayedAt().isAfter(latest)) {
+                latest = play.getPlayedAt();
+            }
+        }
+        if (latest != null) {
+            rebaseIfNeeded(latest);
+        }
+
+        Map<String, Map<String, Double>> deltas = new HashMap<>();
+        for (PlayHistory play : fresh) {
+            Track track;
+            try {
+                track = dbManager.getTrack(play.getTrackId());
+            } catch (SQLException e) {
+                System.err.println("⚠️ Preference profile: failed to load track " + play.getTrackId());
+                continue;
+            }
+            if (track == null) {
+                continue;
+            }
+
+            double weight = weightOf(play.getPlayedAt());
+            addDelta(deltas, ARTIST, track.getArtist(), weight);
+            addDelta(deltas, GENRE, track.getGenre(), weight);
+            addDelta(deltas, MOOD, track.getMood(), weight);
+            deltas.computeIfAbsent(TOTAL, k -> new HashMap<>()).merge("", weight, Double::sum);
+        }
+
+        if (deltas.isEmpty()) {
+            return;
+        }
+
+        try {
+            dbManager.addPreferenceWeights(deltas);
+        } catch (SQLException e) {
+            System.err.println("❌ Failed to persist preference profile: " + e.getMessage());
+            return;
+        }
+
+        deltas.forEach((kind, values) -> values.forEach((value, delta) -> {
+            if (TOTAL.equals(kind)) {
+                total += delta;
+            } else {
+                weights.get(kind).merge(value, delta, Double::sum);
+            }
+        }));
+        version.incrementAndGet();
+    }
+
+    private static void addDelta(Map<String, Map<String, Double>> deltas, String kind, String value, double weight) {
+        if (value == null || value.isEmpty()) {
+            return;
+        }
+        deltas.computeIfAbsent(kind, k -> new HashMap<>())
+                .merge(value.toLowerCase(Locale.ROOT), weight, Double::sum);
+    }
+
+    /**
+     * Geser epoch ke playedAt kalau eksponennya udah lewat REBASE_EXPONENT.
+     * Gagal nyimpen = epoch lama tetap dipakai (masih jauh dari overflow), dicoba lagi play berikutnya.
+     */
+    private void rebaseIfNeeded(LocalDateTime playedAt) {
+        if (exponentOf(playedAt) <= REBASE_EXPONENT) {
+            return;
+        }
+
+        // Epoch disimpan per detik, jadi di memori juga dibuletin
+        LocalDateTime newEpoch = playedAt.withNano(0);
+        double factor = Math.exp(-exponentOf(newEpoch));
+        try {
+            dbManager.rebasePreferenceProfile(factor, newEpoch);
+        } catch (SQLException e) {
+            System.err.println("⚠️ Failed to rebase preference profile: " + e.getMessage());
+            return;
+        }
+        weights.values().forEach(values -> values.replaceAll((value, weight) -> weight * factor));
+        total *= factor;
+        epoch = newEpoch;
+    }
+
+    private double exponentOf(LocalDateTime playedAt) {
+        return Duration.between(epoch, playedAt).getSeconds() / decaySeconds;
+    }
+
+    private double weightOf(LocalDateTime playedAt) {
+        return Math.exp(exponentOf(playedAt));
+    }
+
+    /**
+     * Naik tiap profil berubah (buat invalidasi cache rekomendasi)
+     */
+    public long getVersion() {
+        return version.get();
+    }
+
+    /**
+     * Copy profil saat ini (bobot mentah, belum dinormalisasi)
+     */
+    public synchronized Snapshot snapshot() throws SQLException {
+        ensureLoaded();
+        return new Snapshot(
+                new HashMap<>(weights.get(ARTIST)),
+                new HashMap<>(weights.get(GENRE)),
+                new HashMap<>(weights.get(MOOD)),
+                total);
+    }
+
+    public static final class Snapshot {
+        final Map<String, Double> artists;
+        final Map<String, Double> genres;
+        final Map<String, Double> moods;
+        final double total;
+
+        Snapshot(Map<String, Double> artists, Map<String, Double> genres, Map<String, Double> moods, double total) {
+            this.artists = artists;
+            this.genres = genres;
+            this.moods = moods;
+            this.total = total;
+        }
+
+        public boolean isEmpty() {
+            return total <= 0.0;
+        }
+    }
+}
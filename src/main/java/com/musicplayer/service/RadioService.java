@@ -0,0 +1,166 @@
+package com.musicplayer.service;
+
+import com.musicplayer.model.Recommendation;
+import com.musicplayer.model.Track;
+import com.musicplayer.util.ConfigLoader;
+
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Radio mode: buffer look-ahead isi lagu rekomendasi dari track yang lagi diputer.
+ * Buffer diisi di background, player tinggal ambil (poll) tanpa nunggu apa-apa,
+ * jadi queue udah ke-top-up sebelum lagu sekarang selesai.
+ *
+ * Tiap clear() naikin generation; hasil refill dari generation lama dibuang
+ * (seed-nya dari queue yang udah diganti).
+ */
+public class RadioService implements AudioPlayerService.QueueContinuationProvider {
+
+    // Lagu yang pernah masuk radio ga diulang dalam sekian pilihan terakhir
+    private static final int HISTORY_SIZE = 200;
+    private static final long NONE = -1;
+
+    private final RecommendationService recommendationService;
+    private final int lookahead;
+    private final ExecutorService executor;
+
+    private final Deque<Track> buffer = new ArrayDeque<>();
+    private final Set<String> history = new LinkedHashSet<>();
+    private final AtomicLong generation = new AtomicLong();
+    // Generation yang refill-nya udah antri / jalan, NONE kalau ga ada
+    private final AtomicLong pendingGeneration = new AtomicLong(NONE);
+
+    public RadioService(RecommendationService recommendationService) {
+        this.recommendationService = recommendationService;
+        this.lookahead = Math.max(1, ConfigLoader.getInt("player.radio.lookahead", 3));
+        this.executor = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "radio-lookahead");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    public int getLookahead() {
+        return lookahead;
+    }
+
+    /**
+     * Ambil lagu berikutnya dari buffer (non-blocking), null kalau buffer kosong
+     */
+    public synchronized Track poll() {
+        return buffer.pollFirst();
+    }
+
+    @Override
+    public Track nextTrack(Track current, List<Track> queue) {
+        Track next = poll();
+        refill(current, queue);
+        return next;
+    }
+
+    /**
+     * Isi buffer sampai lookahead di background, seed dari track sekarang
+     */
+    public void refill(Track current, List<Track> queue) {
+        if (current == null) {
+            return;
+        }
+        // Satu refill per generation; refill basi yang masih jalan ga ngeblok refill generation baru
+        long currentGeneration = generation.get();
+        long pending = pendingGeneration.get();
+        if (pending == currentGeneration || !pendingGeneration.compareAndSet(pending, currentGeneration)) {
+            return;
+        }
+
+        List<Track> queueSnapshot = new ArrayList<>(queue);
+        executor.submit(() -> {
+            try {
+                fill(current, queueSnapshot, currentGeneration);
+            } catch (Exception e) {
+                System.err.println("⚠️ Radio refill failed: " + e.getMessage());
+            } finally {
+                pendingGeneration.compareAndSet(currentGeneration, NONE);
+            }
+        });
+    }
+
+    private void fill(Track current, List<Track> queue, long fillGeneration) throws Exception {
+        int missing;
+        Set<String> exclude = new HashSet<>();
+        synchronized (this) {
+            if (generation.get() != fillGeneration) {
+                return; // Buffer udah di-clear sebelum refill ini sempat jalan
+            }
+            missing = lookahead - buffer.size();
+            buffer.forEach(t -> exclude.add(t.getId()));
+            exclude.addAll(history);
+        }
+        if (missing <= 0) {
+            return;
+        }
+        queue.forEach(t -> exclude.add(t.getId()));
+        exclude.add(current.getId());
+
+        List<Track> picks = new ArrayList<>();
+
+        // 1. Yang biasanya diputer habis lagu ini
+        Track sequel = recommendationService.suggestNextTrack(current, queue);
+        if (sequel != null && exclude.add(sequel.getId())) {
+            picks.add(sequel);
+        }
+
+        // 2. Sisanya dari similar tracks
+        if (picks.size() < missing) {
+            for (Recommendation rec : recommendationService.getSimilarTracks(current, lookahead * 3)) {
+                Track track = rec.getTrack();
+                if (picks.size() >= missing) {
+                    break;
+                }
+                if (track.getYoutubeId() != null && exclude.add(track.getId())) {
+                    picks.add(track);
+                }
+            }
+        }
+
+        synchronized (this) {
+            if (generation.get() != fillGeneration) {
+                return; // Di-clear selagi ngitung: pilihan dari seed lama dibuang
+            }
+            for (Track track : picks) {
+                if (buffer.size() >= lookahead) {
+                    break;
+                }
+                buffer.addLast(track);
+                remember(track.getId());
+            }
+        }
+        if (!picks.isEmpty()) {
+            System.out.println("📻 Radio buffer: " + picks.size() + " new tracks queued after " + current.getTitle());
+        }
+    }
+
+    private void remember(String trackId) {
+        history.remove(trackId);
+        history.add(trackId);
+        if (history.size() > HISTORY_SIZE) {
+            Iterator<String> it = history.iterator();
+            it.next();
+            it.remove();
+        }
+    }
+
+    /**
+     * Kosongkan buffer (radio dimatikan / queue diganti user)
+     */
+    public synchronized void clear() {
+        generation.incrementAndGet();
+        buffer.clear();
+    }
+
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
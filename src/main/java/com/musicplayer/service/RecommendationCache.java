@@ -0,0 +1,124 @@
+package com.musicplayer.service;
+
+import com.musicplayer.model.PlayHistory;
+import com.musicplayer.model.Recommendation;
+import com.musicplayer.model.Track;
+import com.musicplayer.repository.DatabaseManager;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Cache hasil rekomendasi (Daily Mix, similar tracks) per seed.
+ * Tiap entry dicap versi data yang dipakai hasilnya waktu dihitung, invalidasi ngikutin
+ * event dari DatabaseManager, bukan TTL:
+ *   Daily Mix      = library (track disimpan), play (play event), profil selera, build CF
+ *   similar tracks = library, build CF (kemiripan konten ga tergantung play)
+ */
+public class RecommendationCache implements DatabaseManager.DataChangeListener {
+
+    private static final int MAX_ENTRIES = 64;
+
+    private final AtomicLong libraryVersion = new AtomicLong();
+    private final AtomicLong playVersion = new AtomicLong();
+    private final LongSupplier profileVersion;
+    private final LongSupplier cfVersion;
+
+    private final Map<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+
+    // Metrics
+    private long hits = 0;
+    private long misses = 0;
+
+    public RecommendationCache(LongSupplier profileVersion, LongSupplier cfVersion) {
+        this.profileVersion = profileVersion;
+        this.cfVersion = cfVersion;
+    }
+
+    @Override
+    public void onTracksSaved(List<Track> tracks) {
+        libraryVersion.incrementAndGet();
+    }
+
+    @Override
+    public void onPlaysRecorded(List<PlayHistory> plays) {
+        playVersion.incrementAndGet();
+    }
+
+    public long getLibraryVersion() {
+        return libraryVersion.get();
+    }
+
+    public long getPlayVersion() {
+        return playVersion.get();
+    }
+
+    private static final String DAILY_MIX_PREFIX = "daily-mix:";
+
+    static String dailyMixKey(int limit) {
+        return DAILY_MIX_PREFIX + limit;
+    }
+
+    static String similarKey(String seedTrackId, int limit) {
+        return "similar:" + seedTrackId + ":" + limit;
+    }
+
+    /**
+     * Stamp versi saat ini buat key ini. Ambil SEBELUM menghitung, biar perubahan di tengah
+     * hitungan bikin hasilnya langsung dianggap basi.
+     */
+    public long[] currentStamp(String key) {
+        if (key.startsWith(DAILY_MIX_PREFIX)) {
+            return new long[] {libraryVersion.get(), playVersion.get(),
+                    profileVersion.getAsLong(), cfVersion.getAsLong()};
+        }
+        return new long[] {libraryVersion.get(), cfVersion.getAsLong()};
+    }
+
+    /**
+     * Hasil yang masih valid (copy), atau null
+     */
+    public synchronized List<Recommendation> get(String key) {
+        Entry entry = entries.get(key);
+        if (entry != null && Arrays.equals(entry.stamp, currentStamp(key))) {
+            hits++;
+            return new ArrayList<>(entry.results);
+        }
+        if (entry != null) {
+            entries.remove(key);
+        }
+        misses++;
+        return null;
+    }
+
+    public synchronized void put(String key, long[] stamp, List<Recommendation> results) {
+        entries.put(key, new Entry(stamp, new ArrayList<>(results)));
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    @Override
+    public synchronized String toString() {
+        long total = hits + misses;
+        return String.format("entries=%d, hits=%d, misses=%d, hitRate=%.1f%%",
+                entries.size(), hits, misses, total == 0 ? 0.0 : hits * 100.0 / total);
+    }
+
+    private static final class Entry {
+        final long[] stamp;
+        final List<Recommendation> results;
+
+        Entry(long[] stamp, List<Recommendation> results) {
+            this.stamp = stamp;
+            this.results = results;
+        }
+    }
+}
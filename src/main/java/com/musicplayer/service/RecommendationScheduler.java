@@ -0,0 +1,137 @@
+package com.musicplayer.service;
+
+import com.musicplayer.model.Recommendation;
+import com.musicplayer.model.Track;
+import com.musicplayer.repository.DatabaseManager;
+import com.musicplayer.util.ConfigLoader;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Precompute Daily Mix + similar-to-recent di background: sekali waktu startup,
+ * lalu tiap recommendation.refresh.interval.minutes (atau kalau diminta lewat refreshNow()).
+ * Snapshot terakhir disimpan di tabel recommendation_snapshot, jadi UI bisa langsung
+ * nampilin hasil lama waktu app dibuka, lalu diganti begitu hasil baru siap.
+ */
+public class RecommendationScheduler {
+
+    static final String DAILY_MIX = "daily_mix";
+    static final String SIMILAR = "similar";
+
+    private final RecommendationService recommendationService;
+    private final DatabaseManager dbManager;
+    private final int dailyMixSize;
+    private final int similarSize;
+    private final ScheduledExecutorService scheduler;
+    private final List<SnapshotListener> listeners = new CopyOnWriteArrayList<>();
+
+    private volatile Snapshot snapshot;
+
+    public RecommendationScheduler(RecommendationService recommendationService, DatabaseManager dbManager) {
+        this.recommendationService = recommendationService;
+        this.dbManager = dbManager;
+        this.dailyMixSize = ConfigLoader.getInt("recommendation.daily.mix.size", 20);
+        this.similarSize = ConfigLoader.getInt("recommendation.similar.recent.size", 15);
+
+        // Snapshot tersimpan dari sesi sebelumnya (cuma baca beberapa baris)
+        try {
+            List<Recommendation> dailyMix = dbManager.loadRecommendationSnapshot(DAILY_MIX);
+            List<Recommendation> similar = dbManager.loadRecommendationSnapshot(SIMILAR);
+            if (!dailyMix.isEmpty() || !similar.isEmpty()) {
+                snapshot = new Snapshot(dailyMix, similar);
+            }
+        } catch (SQLException e) {
+            System.err.println("⚠️ Failed to load recommendation snapshot: " + e.getMessage());
+        }
+
+        int interval = Math.max(1, ConfigLoader.getInt("recommendation.refresh.interval.minutes", 30));
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "recommendation-refresh");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleWithFixedDelay(this::refresh, 0, interval, TimeUnit.MINUTES);
+    }
+
+    /**
+     * Snapshot terakhir (bisa dari sesi sebelumnya), null kalau belum pernah ada
+     */
+    public Snapshot getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Minta hitung ulang sekarang (async), hasilnya dikirim ke listener
+     */
+    public void refreshNow() {
+        scheduler.execute(this::refresh);
+    }
+
+    private void refresh() {
+        try {
+            long start = System.currentTimeMillis();
+            List<Recommendation> dailyMix = recommendationService.generateDailyMix(dailyMixSize);
+
+            List<Recommendation> similar = Collections.emptyList();
+            List<Track> recent = dbManager.getMostPlayedTracks(1);
+            if (!recent.isEmpty()) {
+                similar = recommendationService.getSimilarTracks(recent.get(0), similarSize);
+            }
+
+            Snapshot fresh = new Snapshot(dailyMix, similar);
+            snapshot = fresh;
+            dbManager.saveRecommendationSnapshot(DAILY_MIX, dailyMix);
+            dbManager.saveRecommendationSnapshot(SIMILAR, similar);
+            System.out.println("✅ Recommendations refreshed (" + (System.currentTimeMillis() - start) + "ms)");
+
+            for (SnapshotListener listener : listeners) {
+                listener.onSnapshot(fresh);
+            }
+        } catch (Exception e) {
+            System.err.println("❌ Recommendation refresh failed: " + e.getMessage());
+            for (SnapshotListener listener : listeners) {
+                listener.onRefreshFailed(e.getMessage());
+            }
+        }
+    }
+
+    public void addSnapshotListener(SnapshotListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeSnapshotListener(SnapshotListener listener) {
+        listeners.remove(listener);
+    }
+
+    public void shutdown() {
+        scheduler.shutdown(); // Tanpa interrupt (H2 file channel)
+    }
+
+    public static final class Snapshot {
+        private final List<Recommendation> dailyMix;
+        private final List<Recommendation> similar;
+
+        Snapshot(List<Recommendation> dailyMix, List<Recommendation> similar) {
+            this.dailyMix = Collections.unmodifiableList(new ArrayList<>(dailyMix));
+            this.similar = Collections.unmodifiableList(new ArrayList<>(similar));
+        }
+
+        public List<Recommendation> getDailyMix() { return dailyMix; }
+        public List<Recommendation> getSimilar() { return similar; }
+    }
+
+    /**
+     * Dipanggil dari thread scheduler, UI harus pindah ke EDT sendiri
+     */
+    public interface SnapshotListener {
+        void onSnapshot(Snapshot snapshot);
+        default void onRefreshFailed(String message) {}
+    }
+}
@@ -2,166 +2,214 @@ package com.musicplayer.service;
 
 import com.musicplayer.model.Recommendation;
 import com.musicplayer.model.Track;
+import com.musicplayer.model.TrackNeighbor;
 import com.musicplayer.repository.DatabaseManager;
 
 import java.sql.SQLException;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Function;
 
 /**
  * Improved Recommendation Service dengan algoritma yang lebih baik
  */
 public class RecommendationService {
+    // Daily Mix: kandidat yang disimpen = sisa slot x faktor ini, cukup buat pass diversity
+    private static final int DIVERSITY_POOL_FACTOR = 4;
+    // Lanjutan queue ga boleh ngulang lagu dari sekian entry terakhir
+    private static final int RECENT_QUEUE_EXCLUDE = 20;
+
     private final DatabaseManager dbManager;
+    private final TrackFeatureStore featureStore;
+    private final ParallelScorer scorer;
+    private final CollaborativeFilteringService cfService;
+    private final ContentNeighborService neighborService;
+    private final PreferenceProfileService profileService;
+    private final NextTrackModel nextTrackModel;
+    private final RecommendationCache cache;
 
     public RecommendationService() {
         this.dbManager = DatabaseManager.getInstance();
+        this.featureStore = new TrackFeatureStore(dbManager);
+        this.scorer = new ParallelScorer();
+        this.cfService = new CollaborativeFilteringService(dbManager);
+        this.neighborService = new ContentNeighborService(dbManager, featureStore, scorer);
+        this.profileService = new PreferenceProfileService(dbManager);
+        this.nextTrackModel = new NextTrackModel(dbManager);
+        this.cache = new RecommendationCache(profileService::getVersion, cfService::getVersion);
+        // Urutan penting: feature store harus udah ke-update sebelum neighbor service jalan
+        dbManager.addDataChangeListener(featureStore);
+        dbManager.addDataChangeListener(neighborService);
+        dbManager.addDataChangeListener(cfService);
+        dbManager.addDataChangeListener(profileService);
+        dbManager.addDataChangeListener(nextTrackModel);
+        dbManager.addDataChangeListener(cache);
+    }
+
+    public RecommendationCache getCache() {
+        return cache;
+    }
+
+    public PreferenceProfileService getProfileService() {
+        return profileService;
+    }
+
+    public void shutdown() {
+        System.out.println("📊 Recommendation cache stats: " + cache);
+        neighborService.shutdown();
+        scorer.shutdown();
+        cfService.shutdown();
+        nextTrackModel.shutdown();
     }
 
     /**
-     * Generate Daily Mix - Mix of favorites + diverse new recommendations
+     * Generate Daily Mix - Mix of favorites + diverse new recommendations.
+     * Hasil di-cache sampai ada track disimpan / play baru.
      */
     public List<Recommendation> generateDailyMix(int limit) throws SQLException {
-        List<Track> allTracks = dbManager.getAllTracks();
-
-        System.out.println("📊 Database has " + allTracks.size() + " tracks");
-
-        if (allTracks.isEmpty()) {
-            System.out.println("⚠️ No tracks in database for Daily Mix");
-            return Collections.emptyList();
+        String key = RecommendationCache.dailyMixKey(limit);
+        List<Recommendation> cached = cache.get(key);
+        if (cached != null) {
+            return cached;
         }
 
-        // Remove duplicates by ID
-        List<Track> uniqueTracks = new ArrayList<>();
-        Set<String> seenIds = new HashSet<>();
-
-        for (Track track : allTracks) {
-            String uniqueKey = track.getArtist() + "|" + track.getTitle();
-            if (!seenIds.contains(uniqueKey)) {
-                seenIds.add(uniqueKey);
-                uniqueTracks.add(track);
-            }
-        }
+        long[] stamp = cache.currentStamp(key);
+        List<Recommendation> dailyMix = computeDailyMix(limit);
+        cache.put(key, stamp, dailyMix);
+        return dailyMix;
+    }
 
-        System.out.println("📊 After removing duplicates: " + uniqueTracks.size() + " unique tracks");
-        allTracks = uniqueTracks;
+    private List<Recommendation> computeDailyMix(int limit) throws SQLException {
+        featureStore.ensureLoaded();
 
-        // Get play history
-        List<Track> mostPlayed = dbManager.getMostPlayedTracks(Math.min(10, allTracks.size()));
+        // Get play history (buat favorit), selera dari profil yang meluruh
+        List<Track> mostPlayed = dbManager.getMostPlayedTracks(10);
+        PreferenceProfileService.Snapshot profile = profileService.snapshot();
 
         List<Recommendation> dailyMix = new ArrayList<>();
-
-        if (!mostPlayed.isEmpty()) {
-            // Analyze user preferences from play history
-            Map<String, Integer> genrePreference = new HashMap<>();
-            Map<String, Integer> artistPreference = new HashMap<>();
-            Map<String, Integer> moodPreference = new HashMap<>();
-            Set<String> playedIds = new HashSet<>();
-
-            for (Track track : mostPlayed) {
-                playedIds.add(track.getId());
-
-                if (track.getGenre() != null && !track.getGenre().isEmpty()) {
-                    genrePreference.merge(track.getGenre(), 1, Integer::sum);
-                }
-                if (track.getArtist() != null && !track.getArtist().isEmpty()) {
-                    artistPreference.merge(track.getArtist(), 1, Integer::sum);
-                }
-                if (track.getMood() != null && !track.getMood().isEmpty()) {
-                    moodPreference.merge(track.getMood(), 1, Integer::sum);
-                }
-            }
-
-            // Add some favorite tracks (20% of mix)
-            int favoriteCount = Math.min(4, limit / 5);
-            for (int i = 0; i < favoriteCount && i < mostPlayed.size(); i++) {
-                dailyMix.add(new Recommendation(
-                        mostPlayed.get(i),
-                        1.0,
-                        "Your Favorite"
-                ));
+        // Hasil scoring (id + skor), Track-nya di-load setelah lock dilepas
+        List<Pick> picks = new ArrayList<>();
+
+        Lock readLock = featureStore.readLock();
+        readLock.lock();
+        try {
+            int size = featureStore.size();
+            System.out.println("📊 Database has " + size + " unique tracks");
+
+            if (size == 0) {
+                System.out.println("⚠️ No tracks in database for Daily Mix");
+                return Collections.emptyList();
             }
 
-            // Score all other tracks based on preferences
-            List<ScoredTrack> scoredTracks = new ArrayList<>();
-            for (Track track : allTracks) {
-                if (playedIds.contains(track.getId())) {
-                    continue; // Skip already played
-                }
-
-                double score = calculatePreferenceScore(
-                        track,
-                        genrePreference,
-                        artistPreference,
-                        moodPreference
-                );
-
-                if (score > 0.2) { // Threshold to include diverse recommendations
-                    scoredTracks.add(new ScoredTrack(track, score));
+            if (!mostPlayed.isEmpty()) {
+                // User preferences: profil decayed, fallback ke top played kalau profil belum ada
+                TrackFeatureStore.PreferenceWeights preferences = profile.isEmpty()
+                        ? featureStore.preferenceWeights(mostPlayed)
+                        : featureStore.preferenceWeights(profile);
+                BitSet playedIndexes = new BitSet(size);
+
+                for (Track track : mostPlayed) {
+                    int index = featureStore.indexOf(track.getId());
+                    if (index != TrackFeatureStore.NONE) {
+                        playedIndexes.set(index);
+                    }
                 }
-            }
-
-            // Sort by score and add diversity
-            Collections.sort(scoredTracks, (a, b) -> Double.compare(b.score, a.score));
-
-            // Add top recommendations with diversity
-            Set<String> usedGenres = new HashSet<>();
-            Set<String> usedArtists = new HashSet<>();
-            int remaining = limit - dailyMix.size();
-            int added = 0;
 
-            // First pass: Add highly scored tracks with diversity
-            for (ScoredTrack st : scoredTracks) {
-                if (added >= remaining) break;
-
-                String genre = st.track.getGenre();
-                String artist = st.track.getArtist();
-
-                // Prefer diverse genres and artists
-                boolean isDiverse = !usedGenres.contains(genre) || !usedArtists.contains(artist);
-
-                if (isDiverse || added > remaining / 2) {
+                // Add some favorite tracks (20% of mix)
+                int favoriteCount = Math.min(4, limit / 5);
+                for (int i = 0; i < favoriteCount && i < mostPlayed.size(); i++) {
                     dailyMix.add(new Recommendation(
-                            st.track,
-                            st.score,
-                            getRecommendationReason(st.track, genrePreference, artistPreference)
+                            mostPlayed.get(i),
+                            1.0,
+                            "Your Favorite"
                     ));
+                }
 
-                    if (genre != null) usedGenres.add(genre);
-                    if (artist != null) usedArtists.add(artist);
-                    added++;
+                // Score all other tracks based on preferences.
+                // Cuma simpen top (sisa slot x DIVERSITY_POOL_FACTOR) buat pass diversity.
+                // Threshold 0.2 to include diverse recommendations
+                int remaining = limit - dailyMix.size();
+                TopKSelector selector = scorer.selectTopK(size, remaining * DIVERSITY_POOL_FACTOR, 0.2, i ->
+                        playedIndexes.get(i)
+                                ? Double.NEGATIVE_INFINITY // Skip already played
+                                : featureStore.preferenceScore(i, preferences));
+
+                // Sorted by score, add with diversity
+                int poolSize = selector.sortDescending();
+
+                BitSet usedGenres = new BitSet();
+                BitSet usedArtists = new BitSet();
+                boolean[] taken = new boolean[poolSize];
+                int added = 0;
+
+                // First pass: Add highly scored tracks with diversity
+                for (int rank = 0; rank < poolSize && added < remaining; rank++) {
+                    int index = selector.indexAt(rank);
+                    int genre = featureStore.genreOf(index);
+                    int artist = featureStore.artistOf(index);
+
+                    // Prefer diverse genres and artists (NONE dihitung sebagai belum dipakai)
+                    boolean isDiverse = genre == TrackFeatureStore.NONE || !usedGenres.get(genre)
+                            || artist == TrackFeatureStore.NONE || !usedArtists.get(artist);
+
+                    if (isDiverse || added > remaining / 2) {
+                        picks.add(new Pick(
+                                featureStore.trackId(index),
+                                selector.scoreAt(rank),
+                                getRecommendationReason(index, preferences)
+                        ));
+
+                        if (genre != TrackFeatureStore.NONE) usedGenres.set(genre);
+                        if (artist != TrackFeatureStore.NONE) usedArtists.set(artist);
+                        taken[rank] = true;
+                        added++;
+                    }
                 }
-            }
 
-            // Second pass: Fill remaining slots with best matches
-            for (ScoredTrack st : scoredTracks) {
-                if (added >= remaining) break;
+                // Second pass: Fill remaining slots with best matches
+                for (int rank = 0; rank < poolSize && added < remaining; rank++) {
+                    if (!taken[rank]) {
+                        taken[rank] = true;
+                        picks.add(new Pick(
+                                featureStore.trackId(selector.indexAt(rank)),
+                                selector.scoreAt(rank),
+                                track -> "Recommended for you"
+                        ));
+                        added++;
+                    }
+                }
 
-                boolean alreadyAdded = dailyMix.stream()
-                        .anyMatch(r -> r.getTrack().getId().equals(st.track.getId()));
+            } else {
+                // No play history - return diverse selection (reservoir sampling, store isinya track kanonik aja)
+                int[] sample = new int[Math.min(limit, size)];
+                Random random = new Random();
+
+                for (int i = 0; i < size; i++) {
+                    if (i < sample.length) {
+                        sample[i] = i;
+                    } else {
+                        int slot = random.nextInt(i + 1);
+                        if (slot < sample.length) {
+                            sample[slot] = i;
+                        }
+                    }
+                }
 
-                if (!alreadyAdded) {
-                    dailyMix.add(new Recommendation(
-                            st.track,
-                            st.score,
-                            "Recommended for you"
+                for (int index : sample) {
+                    picks.add(new Pick(
+                            featureStore.trackId(index),
+                            0.5,
+                            track -> "Discover this"
                     ));
-                    added++;
                 }
+                Collections.shuffle(picks);
             }
-
-        } else {
-            // No play history - return diverse selection
-            Collections.shuffle(allTracks);
-            for (int i = 0; i < Math.min(limit, allTracks.size()); i++) {
-                dailyMix.add(new Recommendation(
-                        allTracks.get(i),
-                        0.5,
-                        "Discover this"
-                ));
-            }
+        } finally {
+            readLock.unlock();
         }
 
+        dailyMix.addAll(materialize(picks));
+
         // Shuffle for variety but keep favorites at start
         if (dailyMix.size() > 4) {
             List<Recommendation> favorites = dailyMix.subList(0, Math.min(4, dailyMix.size()));
@@ -175,123 +223,181 @@ public class RecommendationService {
     }
 
     /**
-     * Get similar tracks to a specific track
+     * Get similar tracks to a specific track (di-cache per seed track)
      */
     public List<Recommendation> getSimilarTracks(Track referenceTrack, int limit) throws SQLException {
-        List<Track> allTracks = dbManager.getAllTracks();
-        List<Recommendation> recommendations = new ArrayList<>();
+        // Alias (videoId lain / slug fingerprint) diganti track kanoniknya, biar ga rekomendasiin lagu yang sama
+        featureStore.ensureLoaded();
+        referenceTrack = canonical(referenceTrack);
+        if (referenceTrack.getId() == null) {
+            return computeSimilarTracks(referenceTrack, limit);
+        }
 
-        for (Track track : allTracks) {
-            if (track.getId().equals(referenceTrack.getId())) {
-                continue;
-            }
+        String key = RecommendationCache.similarKey(referenceTrack.getId(), limit);
+        List<Recommendation> cached = cache.get(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        long[] stamp = cache.currentStamp(key);
+        List<Recommendation> similar = computeSimilarTracks(referenceTrack, limit);
+        cache.put(key, stamp, similar);
+        return similar;
+    }
 
-            double similarity = calculateContentSimilarity(referenceTrack, track);
+    private List<Recommendation> computeSimilarTracks(Track referenceTrack, int limit) throws SQLException {
+        featureStore.ensureLoaded();
+        // Tetangga content & CF udah di-precompute, di sini cuma lookup (di luar lock).
+        // stored == null: belum up to date, hitung on-the-fly
+        List<TrackNeighbor> stored = neighborService.getNeighbors(referenceTrack.getId(), limit);
+        List<TrackNeighbor> cfNeighbors = cfService.getNeighbors(referenceTrack.getId());
+
+        List<Pick> picks = new ArrayList<>();
+
+        Lock readLock = featureStore.readLock();
+        readLock.lock();
+        try {
+            TrackFeatureStore.FeatureVector reference = featureStore.vectorOf(referenceTrack);
+
+            // Kandidat = tetangga tersimpan, atau (fallback) track yang share atribut lewat inverted index;
+            // sisanya pasti di bawah threshold. Skor tetap dihitung ulang dari fitur terkini.
+            int[] candidates = stored != null
+                    ? indexesOf(stored)
+                    : featureStore.similarityCandidates(reference);
+
+            // Skor akhir = max(content, CF), tetangga CF ikut jadi kandidat
+            Map<Integer, Double> cfScores = new HashMap<>();
+            for (TrackNeighbor neighbor : cfNeighbors) {
+                int index = featureStore.indexOf(neighbor.getNeighborId());
+                if (index != TrackFeatureStore.NONE && index != reference.index) {
+                    cfScores.put(index, neighbor.getSimilarity());
+                }
+            }
+            if (!cfScores.isEmpty()) {
+                BitSet merged = new BitSet(featureStore.size());
+                for (int i : candidates) merged.set(i);
+                for (int i : cfScores.keySet()) merged.set(i);
+                candidates = merged.stream().toArray();
+            }
 
-            if (similarity > 0.25) { // Lower threshold for more results
-                recommendations.add(new Recommendation(
-                        track,
-                        similarity,
-                        getSimilarityReason(referenceTrack, track)
+            // Lower threshold (0.25) for more results
+            TopKSelector selector = scorer.selectTopK(candidates, limit, 0.25,
+                    i -> Math.max(featureStore.contentSimilarity(i, reference), cfScores.getOrDefault(i, 0.0)));
+
+            // Reason cuma dibikin buat yang lolos limit
+            int count = selector.sortDescending();
+            for (int rank = 0; rank < count; rank++) {
+                int index = selector.indexAt(rank);
+                double cfScore = cfScores.getOrDefault(index, 0.0);
+                picks.add(new Pick(
+                        featureStore.trackId(index),
+                        selector.scoreAt(rank),
+                        cfScore >= selector.scoreAt(rank)
+                                ? track -> "Often played together"
+                                : track -> getSimilarityReason(referenceTrack, track)
                 ));
             }
+        } finally {
+            readLock.unlock();
         }
 
-        recommendations.sort((r1, r2) -> Double.compare(r2.getScore(), r1.getScore()));
-
-        return recommendations.stream()
-                .limit(limit)
-                .collect(Collectors.toList());
+        return materialize(picks);
     }
 
     /**
-     * Calculate content-based similarity (improved)
+     * Load Track hasil pick dalam satu batch (urutan dipertahankan).
+     * Track yang keburu hilang dari DB di-skip.
      */
-    private double calculateContentSimilarity(Track track1, Track track2) {
-        double similarity = 0.0;
-
-        // Same artist = high similarity (30%)
-        if (track1.getArtist() != null && track2.getArtist() != null &&
-                track1.getArtist().equalsIgnoreCase(track2.getArtist())) {
-            similarity += 0.30;
-        }
-
-        // Same genre = moderate similarity (25%)
-        if (track1.getGenre() != null && track2.getGenre() != null &&
-                track1.getGenre().equalsIgnoreCase(track2.getGenre())) {
-            similarity += 0.25;
+    private List<Recommendation> materialize(List<Pick> picks) throws SQLException {
+        List<String> ids = new ArrayList<>(picks.size());
+        for (Pick pick : picks) {
+            ids.add(pick.trackId);
         }
+        Map<String, Track> tracks = dbManager.getTracks(ids);
 
-        // Same mood = moderate similarity (20%)
-        if (track1.getMood() != null && track2.getMood() != null &&
-                track1.getMood().equalsIgnoreCase(track2.getMood())) {
-            similarity += 0.20;
-        }
-
-        // Similar BPM = small similarity (15%)
-        if (track1.getBpm() > 0 && track2.getBpm() > 0) {
-            int bpmDiff = Math.abs(track1.getBpm() - track2.getBpm());
-            double bpmSimilarity = Math.max(0, 1.0 - (bpmDiff / 80.0)); // Within 80 BPM
-            similarity += bpmSimilarity * 0.15;
+        List<Recommendation> recommendations = new ArrayList<>(picks.size());
+        for (Pick pick : picks) {
+            Track track = tracks.get(pick.trackId);
+            if (track != null) {
+                recommendations.add(new Recommendation(track, pick.score, pick.reason.apply(track)));
+            }
         }
+        return recommendations;
+    }
 
-        // Same album = bonus (10%)
-        if (track1.getAlbum() != null && track2.getAlbum() != null &&
-                !track1.getAlbum().isEmpty() && !track2.getAlbum().isEmpty() &&
-                track1.getAlbum().equalsIgnoreCase(track2.getAlbum())) {
-            similarity += 0.10;
+    /**
+     * Versi kanonik track ini dari DB kalau ada di feature store (alias -> kanonik),
+     * kalau ga ya track itu sendiri
+     */
+    private Track canonical(Track track) throws SQLException {
+        String canonicalId = featureStore.canonicalId(track);
+        if (canonicalId == null) {
+            return track;
         }
+        Track canonical = dbManager.getTrack(canonicalId);
+        return canonical != null ? canonical : track;
+    }
 
-        return similarity;
+    private String canonicalId(Track track) {
+        String canonicalId = featureStore.canonicalId(track);
+        return canonicalId != null ? canonicalId : track.getId();
     }
 
     /**
-     * Calculate preference score based on user listening history
+     * Lanjutan queue dari model transisi: lagu yang paling sering diputer setelah current,
+     * selain yang baru-baru ini ada di queue. null kalau belum ada datanya.
      */
-    private double calculatePreferenceScore(Track track,
-                                            Map<String, Integer> genrePreference,
-                                            Map<String, Integer> artistPreference,
-                                            Map<String, Integer> moodPreference) {
-        double score = 0.0;
-        int totalPlays = genrePreference.values().stream().mapToInt(Integer::intValue).sum();
-
-        if (totalPlays == 0) {
-            return 0.5; // Neutral score for new users
+    public Track suggestNextTrack(Track current, List<Track> queue) {
+        if (current == null) {
+            return null;
         }
-
-        // Genre match (40% weight)
-        if (track.getGenre() != null && genrePreference.containsKey(track.getGenre())) {
-            double genreScore = genrePreference.get(track.getGenre()) / (double) totalPlays;
-            score += genreScore * 0.40;
+        try {
+            featureStore.ensureLoaded();
+        } catch (SQLException e) {
+            System.err.println("⚠️ Failed to load feature store: " + e.getMessage());
         }
+        String currentId = canonicalId(current);
 
-        // Artist match (30% weight)
-        if (track.getArtist() != null && artistPreference.containsKey(track.getArtist())) {
-            double artistScore = artistPreference.get(track.getArtist()) / (double) totalPlays;
-            score += artistScore * 0.30;
+        Set<String> recent = new HashSet<>();
+        for (int i = Math.max(0, queue.size() - RECENT_QUEUE_EXCLUDE); i < queue.size(); i++) {
+            recent.add(canonicalId(queue.get(i)));
         }
+        recent.add(currentId);
 
-        // Mood match (30% weight)
-        if (track.getMood() != null && moodPreference.containsKey(track.getMood())) {
-            double moodScore = moodPreference.get(track.getMood()) / (double) totalPlays;
-            score += moodScore * 0.30;
+        String nextId = nextTrackModel.predictNext(currentId, recent);
+        if (nextId == null) {
+            return null;
         }
+        try {
+            return dbManager.getTrack(nextId);
+        } catch (SQLException e) {
+            System.err.println("⚠️ Failed to load suggested track: " + e.getMessage());
+            return null;
+        }
+    }
 
-        return Math.min(score, 1.0);
+    private int[] indexesOf(List<TrackNeighbor> neighbors) {
+        int[] indexes = new int[neighbors.size()];
+        int count = 0;
+        for (TrackNeighbor neighbor : neighbors) {
+            int index = featureStore.indexOf(neighbor.getNeighborId());
+            if (index != TrackFeatureStore.NONE) {
+                indexes[count++] = index;
+            }
+        }
+        return Arrays.copyOf(indexes, count);
     }
 
     /**
-     * Get recommendation reason based on match
+     * Get recommendation reason based on match (teksnya dibikin setelah Track di-load)
      */
-    private String getRecommendationReason(Track track,
-                                           Map<String, Integer> genrePreference,
-                                           Map<String, Integer> artistPreference) {
-        if (track.getArtist() != null && artistPreference.containsKey(track.getArtist())) {
-            return "More from " + track.getArtist();
-        } else if (track.getGenre() != null && genrePreference.containsKey(track.getGenre())) {
-            return "Because you like " + track.getGenre();
+    private Function<Track, String> getRecommendationReason(int index, TrackFeatureStore.PreferenceWeights preferences) {
+        if (preferences.likesArtist(featureStore.artistOf(index))) {
+            return track -> "More from " + track.getArtist();
+        } else if (preferences.likesGenre(featureStore.genreOf(index))) {
+            return track -> "Because you like " + track.getGenre();
         } else {
-            return "Recommended for you";
+            return track -> "Recommended for you";
         }
     }
 
@@ -303,10 +409,12 @@ public class RecommendationService {
                 reference.getArtist().equalsIgnoreCase(similar.getArtist())) {
             return "Same artist";
         } else if (reference.getGenre() != null && similar.getGenre() != null &&
-                reference.getGenre().equalsIgnoreCase(similar.getGenre())) {
+                reference.getGenre().equalsIgnoreCase(similar.getGenre()) &&
+                !reference.getGenre().equalsIgnoreCase(TrackFeatureStore.DEFAULT_GENRE)) {
             return "Similar genre";
         } else if (reference.getMood() != null && similar.getMood() != null &&
-                reference.getMood().equalsIgnoreCase(similar.getMood())) {
+                reference.getMood().equalsIgnoreCase(similar.getMood()) &&
+                !reference.getMood().equalsIgnoreCase(TrackFeatureStore.DEFAULT_MOOD)) {
             return "Similar mood";
         } else {
             return "Similar to " + reference.getTitle();
@@ -314,15 +422,17 @@ public class RecommendationService {
     }
 
     /**
-     * Helper class for scoring
+     * Hasil scoring di bawah readLock feature store: id, skor, dan cara bikin reason-nya
      */
-    private static class ScoredTrack {
-        Track track;
-        double score;
+    private static final class Pick {
+        final String trackId;
+        final double score;
+        final Function<Track, String> reason;
 
-        ScoredTrack(Track track, double score) {
-            this.track = track;
+        Pick(String trackId, double score, Function<Track, String> reason) {
+            this.trackId = trackId;
             this.score = score;
+            this.reason = reason;
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,104 @@
+package com.musicplayer.service;
+
+import com.musicplayer.model.Track;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Resolve stream URL lagu-lagu berikutnya di queue di background selagi lagu sekarang diputer.
+ * Hasilnya masuk StreamUrlCache, jadi pindah lagu tinggal ambil dari cache.
+ *
+ * Tiap prefetch() naikin generation; kerjaan dari generation lama berhenti di item berikutnya
+ * (queue berubah / shuffle di-toggle = daftar lama udah ga relevan).
+ */
+public class StreamPrefetcher {
+
+    private final YouTubeMusicService youtubeService;
+    private final ExecutorService executor;
+    private final AtomicLong generation = new AtomicLong();
+
+    // videoId yang lagi di-resolve, biar playTrack nunggu hasil yang sama, bukan spawn yt-dlp lagi
+    private final Map<String, CompletableFuture<String>> inFlight = new ConcurrentHashMap<>();
+
+    public StreamPrefetcher(YouTubeMusicService youtubeService) {
+        this.youtubeService = youtubeService;
+        this.executor = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "stream-prefetch");
+            t.setDaemon(true);
+            t.setPriority(Thread.MIN_PRIORITY);
+            return t;
+        });
+    }
+
+    /**
+     * Ganti daftar prefetch dengan upcoming (urut sesuai urutan main), kerjaan lama dibatalin
+     */
+    public void prefetch(List<Track> upcoming) {
+        long current = generation.incrementAndGet();
+        List<String> videoIds = new ArrayList<>();
+        for (Track track : upcoming) {
+            if (track != null && track.getYoutubeId() != null && !videoIds.contains(track.getYoutubeId())) {
+                videoIds.add(track.getYoutubeId());
+            }
+        }
+        if (videoIds.isEmpty()) {
+            return;
+        }
+
+        executor.submit(() -> {
+            for (String videoId : videoIds) {
+                if (generation.get() != current) {
+                    return; // Basi, udah ada daftar yang lebih baru
+                }
+                try {
+                    resolve(videoId);
+                } catch (Exception e) {
+                    System.err.println("⚠️ Prefetch failed for " + videoId + ": " + e.getMessage());
+                }
+            }
+        });
+    }
+
+    /**
+     * Batalin prefetch yang belum jalan (queue dikosongin / diganti)
+     */
+    public void cancel() {
+        generation.incrementAndGet();
+    }
+
+    /**
+     * Stream URL buat videoId. Kalau lagi di-prefetch, tunggu hasil itu; kalau ga, resolve
+     * langsung di thread pemanggil (cache dicek duluan di YouTubeMusicService)
+     */
+    public String resolve(String videoId) {
+        CompletableFuture<String> future = new CompletableFuture<>();
+        CompletableFuture<String> existing = inFlight.putIfAbsent(videoId, future);
+        if (existing != null) {
+            return existing.join();
+        }
+
+        try {
+            String url = youtubeService.getStreamUrl(videoId);
+            future.complete(url);
+            return url;
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(videoId, future);
+        }
+    }
+
+    public void shutdown() {
+        cancel();
+        // Tanpa interrupt: proses yt-dlp yang lagi jalan dibiarin selesai
+        executor.shutdown();
+    }
+}
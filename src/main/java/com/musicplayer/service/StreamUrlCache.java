@@ -0,0 +1,238 @@
+package com.musicplayer.service;
+
+import com.musicplayer.repository.DatabaseManager;
+import com.musicplayer.util.ConfigLoader;
+
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cache stream URL hasil yt-dlp per videoId, biar replay / prev-next ga nunggu proses baru.
+ * URL googlevideo punya parameter expire= (epoch seconds); entry dibuang sebelum itu
+ * (dikurangi margin) supaya yang dikasih ke VLC ga keburu basi di tengah lagu.
+ * Entry juga disimpan ke tabel stream_url_cache, jadi tetap kepakai setelah restart.
+ * Satu instance dipakai bareng semua YouTubeMusicService.
+ *
+ * Map cuma diubah sambil pegang monitor; tulis/hapus ke H2 diantre ke thread writer
+ * (write-behind, urutannya sama dengan urutan perubahan map), jadi get() dari thread
+ * fetch ga pernah nunggu I/O.
+ */
+public class StreamUrlCache {
+
+    private static StreamUrlCache instance;
+
+    private final DatabaseManager dbManager;
+    private final boolean enabled;
+    private final int maxEntries;
+    private final long marginSeconds;
+    private final long defaultTtlSeconds;
+    private final ExecutorService writer;
+    private final Object loadLock = new Object();
+    private volatile boolean loaded = false;
+
+    private final Map<String, Entry> entries;
+
+    // Metrics
+    private long hits = 0;
+    private long misses = 0;
+
+    private StreamUrlCache(DatabaseManager dbManager) {
+        this.dbManager = dbManager;
+        this.enabled = ConfigLoader.getBoolean("stream.cache.enabled", true);
+        this.maxEntries = Math.max(1, ConfigLoader.getInt("stream.cache.max.size", 200));
+        this.marginSeconds = ConfigLoader.getInt("stream.cache.expiry.margin.minutes", 30) * 60L;
+        this.defaultTtlSeconds = ConfigLoader.getInt("stream.cache.default.ttl.minutes", 60) * 60L;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (size() > maxEntries) {
+                    deleteLater(eldest.getKey());
+                    return true;
+                }
+                return false;
+            }
+        };
+        this.writer = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "stream-cache-writer");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    public static synchronized StreamUrlCache getInstance() {
+        if (instance == null) {
+            instance = new StreamUrlCache(DatabaseManager.getInstance());
+        }
+        return instance;
+    }
+
+    /**
+     * URL yang masih aman dipakai, null kalau ga ada / udah mepet expire
+     */
+    public String get(String videoId) {
+        if (!enabled) {
+            return null;
+        }
+        ensureLoaded();
+
+        synchronized (this) {
+            Entry entry = entries.get(videoId);
+            if (entry != null && entry.expiresAt - marginSeconds > now()) {
+                hits++;
+                return entry.url;
+            }
+            if (entry != null) {
+                entries.remove(videoId);
+                deleteLater(videoId);
+            }
+            misses++;
+            return null;
+        }
+    }
+
+    public void put(String videoId, String url) {
+        if (!enabled || url == null || url.isEmpty()) {
+            return;
+        }
+        ensureLoaded();
+
+        long expiresAt = parseExpiry(url);
+        if (expiresAt - marginSeconds <= now()) {
+            return; // Udah mepet, ga ada gunanya disimpan
+        }
+        synchronized (this) {
+            entries.put(videoId, new Entry(url, expiresAt));
+            writeLater(() -> dbManager.saveStreamUrl(videoId, url, expiresAt), "persist stream URL");
+        }
+    }
+
+    /**
+     * Buang URL yang ternyata gagal diputar (misal di-revoke sebelum expire)
+     */
+    public void invalidate(String videoId) {
+        if (!enabled) {
+            return;
+        }
+        ensureLoaded(); // Biar entry ini ga dihidupin lagi sama load yang telat
+        synchronized (this) {
+            if (entries.remove(videoId) != null) {
+                deleteLater(videoId);
+            }
+        }
+    }
+
+    /**
+     * Load sekali dari DB, di luar monitor cache. Semua method publik nunggu di sini dulu,
+     * jadi map belum pernah diubah waktu hasil load dimasukin. Trim ke maxEntries (LRU,
+     * yang paling lama di-cache dibuang duluan) baru terjadi setelah iterasi DB selesai.
+     */
+    private void ensureLoaded() {
+        if (loaded) {
+            return;
+        }
+        synchronized (loadLock) {
+            if (loaded) {
+                return;
+            }
+            Map<String, Entry> stored = new LinkedHashMap<>();
+            try {
+                dbManager.loadStreamUrls(now() + marginSeconds,
+                        (videoId, url, expiresAt) -> stored.put(videoId, new Entry(url, expiresAt)));
+            } catch (SQLException e) {
+                System.err.println("⚠️ Failed to load stream URL cache: " + e.getMessage());
+            }
+            synchronized (this) {
+                entries.putAll(stored);
+                if (!entries.isEmpty()) {
+                    System.out.println("📦 Stream URL cache loaded: " + entries.size() + " entries");
+                }
+            }
+            loaded = true;
+        }
+    }
+
+    private void deleteLater(String videoId) {
+        writeLater(() -> dbManager.deleteStreamUrl(videoId), "delete cached stream URL");
+    }
+
+    private void writeLater(Write write, String action) {
+        try {
+            writer.execute(() -> {
+                try {
+                    write.run();
+                } catch (SQLException e) {
+                    System.err.println("⚠️ Failed to " + action + ": " + e.getMessage());
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Udah shutdown, perubahan ini cuma berlaku di memori
+        }
+    }
+
+    /**
+     * Tunggu antrean tulis ke H2 kosong (panggil sebelum DatabaseManager ditutup)
+     */
+    public void shutdown() {
+        writer.shutdown();
+        try {
+            writer.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Ambil expire=<epoch seconds> dari query string, fallback ke TTL default
+     */
+    long parseExpiry(String url) {
+        int start = url.indexOf("expire=");
+        while (start > 0 && url.charAt(start - 1) != '?' && url.charAt(start - 1) != '&') {
+            start = url.indexOf("expire=", start + 1);
+        }
+        if (start > 0) {
+            int end = start + "expire=".length();
+            int stop = end;
+            while (stop < url.length() && Character.isDigit(url.charAt(stop))) {
+                stop++;
+            }
+            if (stop > end) {
+                try {
+                    return Long.parseLong(url.substring(end, stop));
+                } catch (NumberFormatException ignored) {
+                }
+            }
+        }
+        return now() + defaultTtlSeconds;
+    }
+
+    private static long now() {
+        return System.currentTimeMillis() / 1000;
+    }
+
+    @Override
+    public synchronized String toString() {
+        long lookups = hits + misses;
+        return String.format("entries=%d, hits=%d, misses=%d, hitRate=%.1f%%",
+                entries.size(), hits, misses, lookups == 0 ? 0.0 : hits * 100.0 / lookups);
+    }
+
+    @FunctionalInterface
+    private interface Write {
+        void run() throws SQLException;
+    }
+
+    private static class Entry {
+        final String url;
+        final long expiresAt;
+
+        Entry(String url, long expiresAt) {
+            this.url = url;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
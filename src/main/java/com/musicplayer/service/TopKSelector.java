@@ -0,0 +1,140 @@
+package com.musicplayer.service;
+
+/**
+ * Ambil K skor tertinggi dari stream kandidat (index, score) pakai
+ * min-heap berukuran K di array primitif: O(n log k), ga ada objek per kandidat.
+ * Skor sama -> index lebih kecil menang (sama kayak sort stabil di urutan scan).
+ *
+ * Bisa dipakai ulang lewat reset(). Setelah sortDescending(), baca hasil
+ * pakai indexAt()/scoreAt(); offer() lagi harus didahului reset().
+ */
+public class TopKSelector {
+
+    private int k;
+    private int[] indexes;
+    private double[] scores;
+    private int size;
+    private boolean sorted;
+
+    public TopKSelector(int k) {
+        this.indexes = new int[Math.max(1, k)];
+        this.scores = new double[Math.max(1, k)];
+        reset(k);
+    }
+
+    public void reset(int k) {
+        this.k = Math.max(0, k);
+        if (this.k > indexes.length) {
+            indexes = new int[this.k];
+            scores = new double[this.k];
+        }
+        size = 0;
+        sorted = false;
+    }
+
+    public int capacity() {
+        return k;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Skor minimum yang masih bisa masuk (berguna buat pruning).
+     * -Infinity selama heap belum penuh.
+     */
+    public double threshold() {
+        return size < k ? Double.NEGATIVE_INFINITY : scores[0];
+    }
+
+    public void offer(int index, double score) {
+        if (k == 0) {
+            return;
+        }
+        if (size < k) {
+            indexes[size] = index;
+            scores[size] = score;
+            siftUp(size++);
+        } else if (isWorse(indexes[0], scores[0], index, score)) {
+            indexes[0] = index;
+            scores[0] = score;
+            siftDown(0, size);
+        }
+    }
+
+    /**
+     * Gabung hasil selector lain (misal dari worker paralel)
+     */
+    public void merge(TopKSelector other) {
+        for (int i = 0; i < other.size; i++) {
+            offer(other.indexes[i], other.scores[i]);
+        }
+    }
+
+    /**
+     * Urutkan in-place dari skor tertinggi (heapsort), return jumlah hasil
+     */
+    public int sortDescending() {
+        if (!sorted) {
+            for (int end = size - 1; end > 0; end--) {
+                swap(0, end);
+                siftDown(0, end);
+            }
+            sorted = true;
+        }
+        return size;
+    }
+
+    public int indexAt(int rank) {
+        return indexes[rank];
+    }
+
+    public double scoreAt(int rank) {
+        return scores[rank];
+    }
+
+    // a lebih jelek dari b?
+    private static boolean isWorse(int indexA, double scoreA, int indexB, double scoreB) {
+        return scoreA < scoreB || (scoreA == scoreB && indexA > indexB);
+    }
+
+    private void siftUp(int i) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (!isWorse(indexes[i], scores[i], indexes[parent], scores[parent])) {
+                break;
+            }
+            swap(i, parent);
+            i = parent;
+        }
+    }
+
+    private void siftDown(int i, int n) {
+        while (true) {
+            int left = 2 * i + 1;
+            if (left >= n) {
+                break;
+            }
+            int worst = left;
+            int right = left + 1;
+            if (right < n && isWorse(indexes[right], scores[right], indexes[left], scores[left])) {
+                worst = right;
+            }
+            if (!isWorse(indexes[worst], scores[worst], indexes[i], scores[i])) {
+                break;
+            }
+            swap(i, worst);
+            i = worst;
+        }
+    }
+
+    private void swap(int a, int b) {
+        int index = indexes[a];
+        indexes[a] = indexes[b];
+        indexes[b] = index;
+        double score = scores[a];
+        scores[a] = scores[b];
+        scores[b] = score;
+    }
+}
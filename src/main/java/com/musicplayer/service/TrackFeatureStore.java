@@ -0,0 +1,497 @@
+package com.musicplayer.service;
+
+import com.musicplayer.model.Track;
+import com.musicplayer.repository.DatabaseManager;
+import com.musicplayer.util.TrackNormalizer;
+
+import java.sql.SQLException;
+import java.util.*;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * Feature store in-memory buat scoring rekomendasi.
+ * Artist/genre/mood/album di-encode jadi int (dictionary, case-insensitive),
+ * BPM disimpan di array primitif. Loop scoring cuma bandingin int, ga ada alokasi.
+ *
+ * Di-load sekali dari DB, lalu di-update incremental lewat DataChangeListener
+ * setiap ada track yang disimpan.
+ * Ada juga inverted index (kode atribut -> index track), jadi similar tracks cuma perlu
+ * scan track yang punya atribut sama. Genre/mood default ("Music"/"Neutral", diisi waktu
+ * metadata ga ketemu) ga di-index: hampir semua track punya, jadi posting-nya = satu library.
+ * Scan index 0..size() harus dilakukan sambil pegang readLock().
+ *
+ * Objek Track-nya sendiri ga disimpan (mutable, dan satu library Track di heap ngebatalin
+ * streaming load): cuma id + kolom ter-encode. Hasil akhir di-materialize by id lewat
+ * DatabaseManager.getTracks.
+ */
+public class TrackFeatureStore implements DatabaseManager.DataChangeListener {
+
+    public static final int NONE = -1;
+    private static final int INITIAL_CAPACITY = 256;
+    static final String DEFAULT_GENRE = "Music";
+    static final String DEFAULT_MOOD = "Neutral";
+
+    private final DatabaseManager dbManager;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private volatile boolean loaded = false;
+
+    private final Dictionary artists = new Dictionary();
+    private final Dictionary genres = new Dictionary();
+    private final Dictionary moods = new Dictionary();
+    private final Dictionary albums = new Dictionary();
+
+    private String[] ids = new String[INITIAL_CAPACITY];
+    // Dedup key per index, buat lepasin entry indexByKey lama waktu track di-update
+    private String[] keys = new String[INITIAL_CAPACITY];
+    private int[] artist = new int[INITIAL_CAPACITY];
+    private int[] genre = new int[INITIAL_CAPACITY];
+    private int[] mood = new int[INITIAL_CAPACITY];
+    private int[] album = new int[INITIAL_CAPACITY];
+    private int[] bpm = new int[INITIAL_CAPACITY];
+    private int size = 0;
+
+    // Inverted index: kode dictionary -> index track
+    private final Postings artistPostings = new Postings();
+    private final Postings genrePostings = new Postings();
+    private final Postings moodPostings = new Postings();
+    private final Postings albumPostings = new Postings();
+    // Kode genre/mood default, ga masuk posting
+    private final int defaultGenre;
+    private final int defaultMood;
+
+    private final Map<String, Integer> indexById = new HashMap<>();
+    // dedup key (artist|title dinormalisasi) -> index, buat nyambungin alias ke track kanonik
+    private final Map<String, Integer> indexByKey = new HashMap<>();
+
+    public TrackFeatureStore(DatabaseManager dbManager) {
+        this.dbManager = dbManager;
+        this.defaultGenre = genres.encode(DEFAULT_GENRE);
+        this.defaultMood = moods.encode(DEFAULT_MOOD);
+    }
+
+    /**
+     * Load semua track kanonik dari DB (sekali aja). Duplikat artist+title udah
+     * disaring di DB (dedup_key), jadi store ini ga perlu dedup lagi.
+     */
+    public void ensureLoaded() throws SQLException {
+        if (loaded) {
+            return;
+        }
+
+        lock.writeLock().lock();
+        try {
+            if (loaded) {
+                return;
+            }
+            try (Stream<Track> stream = dbManager.streamCanonicalTracks()) {
+                stream.forEach(this::upsert);
+            }
+            loaded = true;
+            System.out.println("📦 Feature store loaded: " + size + " tracks");
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void onTracksSaved(List<Track> saved) {
+        if (!loaded) {
+            return; // Nanti ke-load semua dari DB
+        }
+        lock.writeLock().lock();
+        try {
+            for (Track track : saved) {
+                upsert(track);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void upsert(Track track) {
+        if (track == null || track.getId() == null) {
+            return;
+        }
+
+        Integer existing = indexById.get(track.getId());
+        int i;
+        if (existing != null) {
+            i = existing;
+            indexByKey.remove(keys[i], i);
+        } else {
+            ensureCapacity(size + 1);
+            i = size++;
+            indexById.put(track.getId(), i);
+        }
+        encode(i, track);
+        indexByKey.put(keys[i], i);
+    }
+
+    private static String dedupKey(Track track) {
+        return TrackNormalizer.dedupKey(track.getArtist(), track.getTitle());
+    }
+
+    private void encode(int i, Track track) {
+        if (ids[i] != null) {
+            unindex(i);
+        }
+        ids[i] = track.getId();
+        keys[i] = dedupKey(track);
+        artist[i] = artists.encode(track.getArtist());
+        genre[i] = genres.encode(track.getGenre());
+        mood[i] = moods.encode(track.getMood());
+        album[i] = isEmpty(track.getAlbum()) ? NONE : albums.encode(track.getAlbum());
+        bpm[i] = track.getBpm();
+        index(i);
+    }
+
+    private void index(int i) {
+        artistPostings.add(artist[i], i);
+        genrePostings.add(indexedGenre(genre[i]), i);
+        moodPostings.add(indexedMood(mood[i]), i);
+        albumPostings.add(album[i], i);
+    }
+
+    private void unindex(int i) {
+        artistPostings.remove(artist[i], i);
+        genrePostings.remove(indexedGenre(genre[i]), i);
+        moodPostings.remove(indexedMood(mood[i]), i);
+        albumPostings.remove(album[i], i);
+    }
+
+    private int indexedGenre(int code) {
+        return code == defaultGenre ? NONE : code;
+    }
+
+    private int indexedMood(int code) {
+        return code == defaultMood ? NONE : code;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= ids.length) {
+            return;
+        }
+        int newCapacity = Math.max(capacity, ids.length * 2);
+        ids = Arrays.copyOf(ids, newCapacity);
+        keys = Arrays.copyOf(keys, newCapacity);
+        artist = Arrays.copyOf(artist, newCapacity);
+        genre = Arrays.copyOf(genre, newCapacity);
+        mood = Arrays.copyOf(mood, newCapacity);
+        album = Arrays.copyOf(album, newCapacity);
+        bpm = Arrays.copyOf(bpm, newCapacity);
+    }
+
+    private static boolean isEmpty(String value) {
+        return value == null || value.isEmpty();
+    }
+
+    // ========== Read API (panggil sambil pegang readLock) ==========
+
+    public Lock readLock() {
+        return lock.readLock();
+    }
+
+    public int size() { return size; }
+    public String trackId(int i) { return ids[i]; }
+    public int artistOf(int i) { return artist[i]; }
+    public int genreOf(int i) { return genre[i]; }
+    public int moodOf(int i) { return mood[i]; }
+    public int albumOf(int i) { return album[i]; }
+    public int bpmOf(int i) { return bpm[i]; }
+
+    public int indexOf(String trackId) {
+        Integer i = indexById.get(trackId);
+        return i == null ? NONE : i;
+    }
+
+    /**
+     * Index track kanonik: by id, fallback by artist+title (buat alias: videoId lain, slug fingerprint)
+     */
+    public int indexOf(Track track) {
+        int i = indexOf(track.getId());
+        if (i != NONE) {
+            return i;
+        }
+        Integer byKey = indexByKey.get(dedupKey(track));
+        return byKey == null ? NONE : byKey;
+    }
+
+    /**
+     * Id track kanonik dari track ini, null kalau ga ada di store.
+     * Ambil readLock sendiri.
+     */
+    public String canonicalId(Track track) {
+        lock.readLock().lock();
+        try {
+            int i = indexOf(track);
+            return i == NONE ? null : ids[i];
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Encode track (boleh yang belum ada di store) jadi vector referensi.
+     * Value yang belum pernah muncul jadi NONE, otomatis ga match apa-apa.
+     */
+    public FeatureVector vectorOf(Track track) {
+        return new FeatureVector(
+                indexOf(track),
+                artists.lookup(track.getArtist()),
+                genres.lookup(track.getGenre()),
+                moods.lookup(track.getMood()),
+                isEmpty(track.getAlbum()) ? NONE : albums.lookup(track.getAlbum()),
+                track.getBpm());
+    }
+
+    /**
+     * Vector fitur track i yang udah ada di store
+     */
+    public FeatureVector vectorAt(int i) {
+        return new FeatureVector(i, artist[i], genre[i], mood[i], album[i], bpm[i]);
+    }
+
+    /**
+     * Kandidat similar tracks: semua track yang share artist/genre/mood/album dengan referensi
+     * (urut index, tanpa referensinya sendiri).
+     * Track tanpa atribut yang sama maksimal dapet 0.15 dari BPM, jadi ga mungkin lolos threshold.
+     * Genre/mood default ga dihitung sebagai atribut yang sama (ga di-index).
+     */
+    public int[] similarityCandidates(FeatureVector ref) {
+        BitSet candidates = new BitSet(size);
+        artistPostings.collect(ref.artist, candidates);
+        genrePostings.collect(indexedGenre(ref.genre), candidates);
+        moodPostings.collect(indexedMood(ref.mood), candidates);
+        albumPostings.collect(ref.album, candidates);
+        if (ref.index != NONE) {
+            candidates.clear(ref.index);
+        }
+        return candidates.stream().toArray();
+    }
+
+    /**
+     * Content similarity antara track i dan referensi.
+     * Bobot: artist 30%, genre 25%, mood 20%, BPM 15%, album 10%.
+     * Genre/mood default ga dihitung match (sama kayak similarityCandidates): dua track yang
+     * cuma sama-sama belum punya metadata bukan berarti mirip.
+     */
+    public double contentSimilarity(int i, FeatureVector ref) {
+        double similarity = 0.0;
+
+        if (ref.artist != NONE && artist[i] == ref.artist) {
+            similarity += 0.30;
+        }
+        if (indexedGenre(ref.genre) != NONE && genre[i] == ref.genre) {
+            similarity += 0.25;
+        }
+        if (indexedMood(ref.mood) != NONE && mood[i] == ref.mood) {
+            similarity += 0.20;
+        }
+        if (ref.bpm > 0 && bpm[i] > 0) {
+            int bpmDiff = Math.abs(ref.bpm - bpm[i]);
+            similarity += Math.max(0, 1.0 - (bpmDiff / 80.0)) * 0.15; // Within 80 BPM
+        }
+        if (ref.album != NONE && album[i] == ref.album) {
+            similarity += 0.10;
+        }
+
+        return similarity;
+    }
+
+    /**
+     * Bangun bobot preferensi dari daftar track (misal most played).
+     * Dialokasikan sekali per request, dipakai ulang buat semua kandidat.
+     */
+    public PreferenceWeights preferenceWeights(List<Track> history) {
+        PreferenceWeights weights = new PreferenceWeights(artists.size(), genres.size(), moods.size());
+
+        for (Track track : history) {
+            int g = isEmpty(track.getGenre()) ? NONE : genres.lookup(track.getGenre());
+            int a = isEmpty(track.getArtist()) ? NONE : artists.lookup(track.getArtist());
+            int m = isEmpty(track.getMood()) ? NONE : moods.lookup(track.getMood());
+            if (g != NONE) {
+                weights.genre[g]++;
+                weights.total++;
+            }
+            if (a != NONE) {
+                weights.artist[a]++;
+            }
+            if (m != NONE) {
+                weights.mood[m]++;
+            }
+        }
+
+        if (weights.total > 0) {
+            for (int k = 0; k < weights.genre.length; k++) weights.genre[k] /= weights.total;
+            for (int k = 0; k < weights.artist.length; k++) weights.artist[k] /= weights.total;
+            for (int k = 0; k < weights.mood.length; k++) weights.mood[k] /= weights.total;
+        }
+        return weights;
+    }
+
+    /**
+     * Bobot preferensi dari profil yang meluruh (PreferenceProfileService).
+     * Value yang ga ada di library di-skip.
+     */
+    public PreferenceWeights preferenceWeights(PreferenceProfileService.Snapshot profile) {
+        PreferenceWeights weights = new PreferenceWeights(artists.size(), genres.size(), moods.size());
+        weights.total = profile.total;
+        if (profile.isEmpty()) {
+            return weights;
+        }
+
+        profile.artists.forEach((value, w) -> addWeight(weights.artist, artists.lookup(value), w / profile.total));
+        profile.genres.forEach((value, w) -> addWeight(weights.genre, genres.lookup(value), w / profile.total));
+        profile.moods.forEach((value, w) -> addWeight(weights.mood, moods.lookup(value), w / profile.total));
+        return weights;
+    }
+
+    private static void addWeight(double[] weights, int code, double weight) {
+        if (code != NONE) {
+            weights[code] += weight;
+        }
+    }
+
+    /**
+     * Preference score track i. Bobot: genre 40%, artist 30%, mood 30%
+     */
+    public double preferenceScore(int i, PreferenceWeights weights) {
+        if (weights.total == 0) {
+            return 0.5; // Neutral score for new users
+        }
+
+        double score = 0.0;
+        if (genre[i] != NONE && genre[i] < weights.genre.length) {
+            score += weights.genre[genre[i]] * 0.40;
+        }
+        if (artist[i] != NONE && artist[i] < weights.artist.length) {
+            score += weights.artist[artist[i]] * 0.30;
+        }
+        if (mood[i] != NONE && mood[i] < weights.mood.length) {
+            score += weights.mood[mood[i]] * 0.30;
+        }
+        return Math.min(score, 1.0);
+    }
+
+    /**
+     * Vector fitur track referensi (hasil vectorOf)
+     */
+    public static final class FeatureVector {
+        public final int index;
+        public final int artist;
+        public final int genre;
+        public final int mood;
+        public final int album;
+        public final int bpm;
+
+        FeatureVector(int index, int artist, int genre, int mood, int album, int bpm) {
+            this.index = index;
+            this.artist = artist;
+            this.genre = genre;
+            this.mood = mood;
+            this.album = album;
+            this.bpm = bpm;
+        }
+    }
+
+    /**
+     * Bobot preferensi per kode dictionary (sudah dinormalisasi)
+     */
+    public static final class PreferenceWeights {
+        final double[] artist;
+        final double[] genre;
+        final double[] mood;
+        double total;
+
+        PreferenceWeights(int artists, int genres, int moods) {
+            this.artist = new double[artists];
+            this.genre = new double[genres];
+            this.mood = new double[moods];
+        }
+
+        public boolean likesArtist(int code) {
+            return code != NONE && code < artist.length && artist[code] > 0;
+        }
+
+        public boolean likesGenre(int code) {
+            return code != NONE && code < genre.length && genre[code] > 0;
+        }
+    }
+
+    /**
+     * Posting list per kode (kode dictionary / bucket BPM -> index track)
+     */
+    private static final class Postings {
+        private int[][] lists = new int[0][];
+        private int[] sizes = new int[0];
+
+        void add(int code, int i) {
+            if (code == NONE) {
+                return;
+            }
+            if (code >= lists.length) {
+                int newLength = Math.max(code + 1, lists.length * 2);
+                lists = Arrays.copyOf(lists, newLength);
+                sizes = Arrays.copyOf(sizes, newLength);
+            }
+            int[] list = lists[code];
+            if (list == null) {
+                list = lists[code] = new int[4];
+            } else if (sizes[code] == list.length) {
+                list = lists[code] = Arrays.copyOf(list, list.length * 2);
+            }
+            list[sizes[code]++] = i;
+        }
+
+        void remove(int code, int i) {
+            if (code == NONE || code >= lists.length || lists[code] == null) {
+                return;
+            }
+            int[] list = lists[code];
+            for (int k = 0; k < sizes[code]; k++) {
+                if (list[k] == i) {
+                    list[k] = list[--sizes[code]]; // Urutan ga penting
+                    return;
+                }
+            }
+        }
+
+        void collect(int code, BitSet into) {
+            if (code == NONE || code >= lists.length || lists[code] == null) {
+                return;
+            }
+            int[] list = lists[code];
+            for (int k = 0; k < sizes[code]; k++) {
+                into.set(list[k]);
+            }
+        }
+    }
+
+    /**
+     * String -> int code (case-insensitive)
+     */
+    private static final class Dictionary {
+        private final Map<String, Integer> codes = new HashMap<>();
+
+        int encode(String value) {
+            if (value == null) {
+                return NONE;
+            }
+            return codes.computeIfAbsent(value.toLowerCase(Locale.ROOT), k -> codes.size());
+        }
+
+        int lookup(String value) {
+            if (value == null) {
+                return NONE;
+            }
+            Integer code = codes.get(value.toLowerCase(Locale.ROOT));
+            return code == null ? NONE : code;
+        }
+
+        int size() {
+            return codes.size();
+        }
+    }
+}
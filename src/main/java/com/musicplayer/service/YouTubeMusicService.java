@@ -23,6 +23,7 @@ public class YouTubeMusicService {
     private final OkHttpClient client;
     private final ObjectMapper mapper;
     private final YtDlpService ytDlpService;
+    private final StreamUrlCache streamUrlCache;
 
     public YouTubeMusicService() {
         this.client = new OkHttpClient.Builder()
@@ -30,7 +31,8 @@ public class YouTubeMusicService {
                 .readTimeout(15, TimeUnit.SECONDS)
                 .build();
         this.mapper = new ObjectMapper();
-        this.ytDlpService = new YtDlpService();
+        this.ytDlpService = YtDlpService.getInstance();
+        this.streamUrlCache = StreamUrlCache.getInstance();
 
         System.out.println("✅ YouTubeMusicService initialized");
     }
@@ -93,12 +95,33 @@ public class YouTubeMusicService {
         return tracks;
     }
 
+    /**
+     * Stream URL buat videoId: dari StreamUrlCache kalau masih valid, kalau ga panggil yt-dlp
+     */
     public String getStreamUrl(String videoId) {
         if (videoId == null || videoId.isEmpty()) {
             System.err.println("❌ Invalid videoId");
             return null;
         }
-        return ytDlpService.getStreamUrl(videoId);
+
+        String cached = streamUrlCache.get(videoId);
+        if (cached != null) {
+            System.out.println("⚡ Stream URL from cache: " + videoId);
+            return cached;
+        }
+
+        String streamUrl = ytDlpService.getStreamUrl(videoId);
+        streamUrlCache.put(videoId, streamUrl);
+        return streamUrl;
+    }
+
+    /**
+     * Buang URL cache (dipanggil kalau URL-nya gagal diputar) biar resolve berikutnya fresh
+     */
+    public void invalidateStreamUrl(String videoId) {
+        if (videoId != null) {
+            streamUrlCache.invalidate(videoId);
+        }
     }
 
     public JsonNode getTrackInfo(String videoId) {
@@ -1,54 +1,146 @@
 package com.musicplayer.service;
 
 import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.MappingIterator;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.musicplayer.util.ConfigLoader;
+import com.musicplayer.util.ResourceExtractor;
 
 import java.io.*;
-import java.nio.file.Files;
-import java.nio.file.StandardCopyOption;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 public class YtDlpService {
 
+    private static final String WATCH_URL = "https://music.youtube.com/watch?v=";
+
+    private static YtDlpService instance;
+
     private final ObjectMapper mapper = new ObjectMapper();
-    private final String ytDlpPath;
+    private final YtDlpWorkerPool workerPool;
+    private final int batchSize;
+    private final long batchTimeoutSeconds;
+    private final ExecutorService batchExecutor;
+
+    private String binaryPath;
+    private boolean binaryResolved = false;
+
+    private YtDlpService() {
+        this.workerPool = YtDlpWorkerPool.getInstance();
+        this.batchSize = Math.max(1, ConfigLoader.getInt("ytdlp.batch.size", 20));
+        this.batchTimeoutSeconds = Math.max(1, ConfigLoader.getInt("ytdlp.batch.timeout.seconds", 120));
+        this.batchExecutor = Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "ytdlp-batch");
+            t.setDaemon(true);
+            return t;
+        });
+    }
 
-    public YtDlpService() {
-        this.ytDlpPath = extractYtDlp();
+    /**
+     * Satu instance dipakai bareng (YouTubeMusicService, MetadataEnrichmentService).
+     * Binary yt-dlp baru dicari waktu pertama dipakai, bukan di sini.
+     */
+    public static synchronized YtDlpService getInstance() {
+        if (instance == null) {
+            instance = new YtDlpService();
+        }
+        return instance;
     }
 
     /**
-     * Extract yt-dlp.exe dari resources ke folder temp
+     * Path binary yt-dlp, di-resolve sekali: hasil extract dari resources, fallback ke PATH
      */
-    private String extractYtDlp() {
+    private synchronized String ytDlpPath() {
+        if (!binaryResolved) {
+            binaryResolved = true;
+            binaryPath = resolveBinary();
+        }
+        return binaryPath;
+    }
+
+    private String resolveBinary() {
+        String resource = "/client/" + bundledBinaryName();
         try {
-            InputStream is = getClass().getResourceAsStream("/client/yt-dlp.exe");
-            if (is == null) {
-                System.err.println("❌ yt-dlp.exe tidak ditemukan di resources/client/");
-                return null;
+            Path extracted = ResourceExtractor.extract(resource, true);
+            if (extracted != null) {
+                return extracted.toAbsolutePath().toString();
             }
+            System.err.println("⚠️ " + resource + " tidak ditemukan di resources, cari yt-dlp di PATH");
+        } catch (IOException e) {
+            System.err.println("❌ Error extracting yt-dlp: " + e.getMessage());
+        }
 
-            File temp = new File(System.getProperty("java.io.tmpdir"), "yt-dlp.exe");
-
-            Files.copy(is, temp.toPath(), StandardCopyOption.REPLACE_EXISTING);
-            temp.setExecutable(true);
+        String onPath = findOnPath(isWindows() ? "yt-dlp.exe" : "yt-dlp");
+        if (onPath != null) {
+            System.out.println("✅ Using yt-dlp from PATH: " + onPath);
+        } else {
+            System.err.println("❌ yt-dlp tidak ditemukan (resources maupun PATH)");
+        }
+        return onPath;
+    }
 
-            System.out.println("✅ yt-dlp extracted to: " + temp.getAbsolutePath());
-            return temp.getAbsolutePath();
+    /**
+     * Nama file sesuai aset rilis yt-dlp per OS
+     */
+    private static String bundledBinaryName() {
+        String os = System.getProperty("os.name", "").toLowerCase(Locale.ROOT);
+        if (os.contains("win")) {
+            return "yt-dlp.exe";
+        } else if (os.contains("mac")) {
+            return "yt-dlp_macos";
+        }
+        return "yt-dlp_linux";
+    }
 
-        } catch (Exception e) {
-            System.err.println("❌ Error extracting yt-dlp: " + e.getMessage());
+    private static String findOnPath(String executable) {
+        String path = System.getenv("PATH");
+        if (path == null) {
             return null;
         }
+        for (String dir : path.split(File.pathSeparator)) {
+            if (dir.isEmpty()) {
+                continue;
+            }
+            File candidate = new File(dir, executable);
+            if (candidate.isFile() && candidate.canExecute()) {
+                return candidate.getAbsolutePath();
+            }
+        }
+        return null;
+    }
+
+    private static boolean isWindows() {
+        return System.getProperty("os.name", "").toLowerCase(Locale.ROOT).contains("win");
     }
 
     /**
-     * Get stream URL using yt-dlp
+     * Get stream URL using yt-dlp (worker pool dulu, fallback satu proses per call)
      */
     public String getStreamUrl(String videoId) {
+        if (workerPool.isAvailable()) {
+            try {
+                String streamUrl = workerPool.request("URL", videoId);
+                if (!streamUrl.isEmpty()) {
+                    System.out.println("✅ Stream URL obtained via yt-dlp worker");
+                    return streamUrl;
+                }
+            } catch (YtDlpWorkerPool.ExtractionException e) {
+                System.err.println("yt-dlp error: " + e.getMessage());
+                return null;
+            } catch (IOException e) {
+                System.err.println("⚠️ yt-dlp worker failed, falling back: " + e.getMessage());
+            }
+        }
+
+        String ytDlpPath = ytDlpPath();
         if (ytDlpPath == null) return null;
 
         try {
-            String url = "https://music.youtube.com/watch?v=" + videoId;
+            String url = WATCH_URL + videoId;
 
             ProcessBuilder pb = new ProcessBuilder(
                     ytDlpPath,
@@ -77,13 +169,25 @@ public class YtDlpService {
     }
 
     /**
-     * Get full track info via yt-dlp
+     * Get full track info via yt-dlp (worker pool dulu, fallback satu proses per call)
      */
     public JsonNode getTrackInfo(String videoId) {
+        if (workerPool.isAvailable()) {
+            try {
+                return mapper.readTree(workerPool.request("INFO", videoId));
+            } catch (YtDlpWorkerPool.ExtractionException e) {
+                System.err.println("yt-dlp info error: " + e.getMessage());
+                return null;
+            } catch (IOException e) {
+                System.err.println("⚠️ yt-dlp worker failed, falling back: " + e.getMessage());
+            }
+        }
+
+        String ytDlpPath = ytDlpPath();
         if (ytDlpPath == null) return null;
 
         try {
-            String url = "https://music.youtube.com/watch?v=" + videoId;
+            String url = WATCH_URL + videoId;
 
             ProcessBuilder pb = new ProcessBuilder(
                     ytDlpPath,
@@ -111,4 +215,78 @@ public class YtDlpService {
 
         return null;
     }
+
+    /**
+     * Info banyak video sekaligus, future per videoId (selesai dengan null kalau video itu gagal).
+     * Satu proses `yt-dlp --dump-json --ignore-errors` per batchSize id, output-nya (JSON
+     * berurutan) di-parse streaming dan dirute ke future lewat field id. Worker pool sengaja
+     * ga dipakai di sini biar tetap kosong buat resolve stream URL waktu playback.
+     */
+    public Map<String, CompletableFuture<JsonNode>> getTrackInfoBatch(Collection<String> videoIds) {
+        Map<String, CompletableFuture<JsonNode>> futures = new LinkedHashMap<>();
+        for (String videoId : videoIds) {
+            if (videoId != null && !videoId.isEmpty()) {
+                futures.putIfAbsent(videoId, new CompletableFuture<>());
+            }
+        }
+
+        List<String> ids = new ArrayList<>(futures.keySet());
+        for (int start = 0; start < ids.size(); start += batchSize) {
+            List<String> chunk = ids.subList(start, Math.min(ids.size(), start + batchSize));
+            batchExecutor.submit(() -> runBatch(chunk, futures));
+        }
+        return futures;
+    }
+
+    private void runBatch(List<String> videoIds, Map<String, CompletableFuture<JsonNode>> futures) {
+        try {
+            String ytDlpPath = ytDlpPath();
+            if (ytDlpPath == null || (videoIds.size() == 1 && workerPool.isAvailable())) {
+                // Binary ga ada, atau cuma satu id (worker yang udah warm lebih cepat): satu-satu
+                for (String videoId : videoIds) {
+                    futures.get(videoId).complete(getTrackInfo(videoId));
+                }
+                return;
+            }
+
+            List<String> command = new ArrayList<>(List.of(ytDlpPath, "--dump-json", "--ignore-errors", "--no-playlist"));
+            for (String videoId : videoIds) {
+                command.add(WATCH_URL + videoId);
+            }
+
+            ProcessBuilder pb = new ProcessBuilder(command);
+            pb.redirectError(ProcessBuilder.Redirect.INHERIT); // Error per video tetap kelihatan di log
+            Process process = pb.start();
+
+            // yt-dlp nyangkut bikin baca stdout ngeblok selamanya: kill setelah timeout biar stream-nya ketutup
+            CompletableFuture<Void> watchdog = CompletableFuture.runAsync(process::destroyForcibly,
+                    CompletableFuture.delayedExecutor(batchTimeoutSeconds, TimeUnit.SECONDS));
+            int found = 0;
+            try (MappingIterator<JsonNode> records = mapper.readerFor(JsonNode.class).readValues(process.getInputStream())) {
+                while (records.hasNextValue()) {
+                    JsonNode info = records.nextValue();
+                    CompletableFuture<JsonNode> future = futures.get(info.path("id").asText(""));
+                    if (future != null && future.complete(info)) {
+                        found++;
+                    }
+                }
+                if (!process.waitFor(batchTimeoutSeconds, TimeUnit.SECONDS)) {
+                    System.err.println("⚠️ yt-dlp batch did not exit after " + batchTimeoutSeconds + "s");
+                }
+            } finally {
+                watchdog.cancel(false);
+                // Output rusak / timeout: jangan tinggalin proses yang ngeblok di pipe stdout
+                process.destroyForcibly();
+            }
+            System.out.println("✅ yt-dlp batch: " + found + "/" + videoIds.size() + " tracks");
+
+        } catch (Exception e) {
+            System.err.println("yt-dlp batch error: " + e.getMessage());
+        } finally {
+            // Yang ga muncul di output = gagal (--ignore-errors skip video itu)
+            for (String videoId : videoIds) {
+                futures.get(videoId).complete(null);
+            }
+        }
+    }
 }
@@ -0,0 +1,428 @@
+package com.musicplayer.service;
+
+import com.musicplayer.util.ConfigLoader;
+import com.musicplayer.util.ResourceExtractor;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pool proses extractor yt-dlp yang hidup terus (resources/ytdlp/worker.py), biar tiap
+ * resolve ga bayar startup interpreter lagi. Protokol per baris lewat stdin/stdout:
+ *   request:  id \t op \t videoId      (op = URL, INFO, PING)
+ *   response: id \t status \t payload  (status = OK, ERR, PONG)
+ *
+ * Satu worker ngerjain satu request sekaligus. Worker yang timeout / crash dibuang dan
+ * di-start ulang, worker nganggur di-PING periodik. Slot yang gagal di-start dicoba lagi
+ * dengan backoff (RESTART_BACKOFF_MIN..MAX) sampai berhasil. Selama ga ada worker hidup
+ * (python / modul yt_dlp ga ada), pool unavailable dan YtDlpService balik ke satu proses
+ * per call; begitu ada worker yang hidup lagi, pool kepakai lagi.
+ * Dipakai bareng (getInstance), worker baru di-start waktu request pertama.
+ */
+public class YtDlpWorkerPool {
+
+    private static final String[] SCRIPTS = {"worker.py", "stub_extractor.py"};
+    private static final long PING_TIMEOUT_MILLIS = 5_000;
+    private static final long RESTART_BACKOFF_MIN_MILLIS = 5_000;
+    private static final long RESTART_BACKOFF_MAX_MILLIS = 10 * 60_000;
+
+    private static YtDlpWorkerPool instance;
+
+    private final boolean enabled;
+    private final boolean stub;
+    private final String python;
+    private final int size;
+    private final long requestTimeoutMillis;
+    private final long startTimeoutMillis;
+    private final long healthIntervalSeconds;
+
+    private final BlockingQueue<Worker> idle = new LinkedBlockingQueue<>();
+    private final AtomicInteger live = new AtomicInteger();
+    private final AtomicLong requestIds = new AtomicLong();
+    private ScheduledExecutorService healthChecker;
+    private List<String> command;
+    // Dir script yang di-import worker.py (stub_extractor), tiap resource di-extract ke dir sendiri
+    private String pythonPath;
+    private boolean started = false;
+    private volatile boolean available = true;
+    private volatile boolean closed = false;
+
+    // Metrics
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong restarts = new AtomicLong();
+
+    private YtDlpWorkerPool() {
+        this.enabled = ConfigLoader.getBoolean("ytdlp.worker.enabled", true);
+        this.stub = ConfigLoader.getBoolean("ytdlp.worker.stub", false);
+        this.python = ConfigLoader.get("ytdlp.worker.python", isWindows() ? "python" : "python3");
+        this.size = Math.max(1, ConfigLoader.getInt("ytdlp.worker.count", 2));
+        this.requestTimeoutMillis = ConfigLoader.getInt("ytdlp.worker.timeout.seconds", 30) * 1000L;
+        this.startTimeoutMillis = ConfigLoader.getInt("ytdlp.worker.start.timeout.seconds", 15) * 1000L;
+        this.healthIntervalSeconds = Math.max(1, ConfigLoader.getInt("ytdlp.worker.health.interval.seconds", 60));
+    }
+
+    public static synchronized YtDlpWorkerPool getInstance() {
+        if (instance == null) {
+            instance = new YtDlpWorkerPool();
+        }
+        return instance;
+    }
+
+    public boolean isAvailable() {
+        return enabled && available && !closed;
+    }
+
+    /**
+     * Kirim satu request ke worker yang nganggur, return payload kalau OK.
+     * ExtractionException = yt-dlp-nya yang gagal (worker sehat);
+     * IOException lain = pool / worker bermasalah, caller sebaiknya fallback.
+     */
+    public String request(String op, String videoId) throws IOException {
+        ensureStarted();
+        if (!isAvailable()) {
+            throw new IOException("yt-dlp worker pool unavailable");
+        }
+
+        Worker worker = idle.poll();
+        if (worker == null && live.get() <= 0) {
+            // Semua worker lagi di-restart: langsung fallback daripada nunggu
+            throw new IOException("No yt-dlp worker running, restart in progress");
+        }
+        try {
+            if (worker == null) {
+                worker = idle.poll(requestTimeoutMillis, TimeUnit.MILLISECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for a yt-dlp worker", e);
+        }
+        if (worker == null) {
+            throw new IOException("No yt-dlp worker free after " + requestTimeoutMillis + " ms");
+        }
+
+        requests.incrementAndGet();
+        boolean healthy = false;
+        try {
+            String[] response = worker.call(op, videoId, requestTimeoutMillis);
+            healthy = true;
+            String status = response.length > 1 ? response[1] : "";
+            String payload = response.length > 2 ? response[2] : "";
+            if (!"OK".equals(status)) {
+                failures.incrementAndGet();
+                throw new ExtractionException(payload.isEmpty() ? status : payload);
+            }
+            return payload;
+        } catch (ExtractionException e) {
+            throw e;
+        } catch (IOException e) {
+            failures.incrementAndGet();
+            throw e;
+        } finally {
+            release(worker, healthy);
+        }
+    }
+
+    private synchronized void ensureStarted() {
+        if (started || !enabled || closed) {
+            return;
+        }
+        started = true;
+
+        try {
+            command = buildCommand();
+        } catch (IOException e) {
+            System.err.println("⚠️ yt-dlp worker script unavailable: " + e.getMessage());
+            available = false;
+            return;
+        }
+
+        // Start semua proses dulu, baru PING: startup interpreter jalan paralel
+        List<Worker> spawned = new ArrayList<>();
+        List<Integer> failedSlots = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            try {
+                spawned.add(new Worker(i));
+            } catch (IOException e) {
+                System.err.println("⚠️ Failed to start yt-dlp worker: " + e.getMessage());
+                failedSlots.add(i);
+            }
+        }
+        for (Worker worker : spawned) {
+            if (worker.ping(startTimeoutMillis)) {
+                live.incrementAndGet();
+                idle.offer(worker);
+            } else {
+                worker.destroy();
+                failedSlots.add(worker.slot);
+            }
+        }
+
+        // Health checker tetap jalan walau semua gagal, slot yang gagal dicoba lagi dari sana
+        healthChecker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "ytdlp-health");
+            t.setDaemon(true);
+            return t;
+        });
+        healthChecker.scheduleWithFixedDelay(this::checkIdleWorkers,
+                healthIntervalSeconds, healthIntervalSeconds, TimeUnit.SECONDS);
+        for (int slot : failedSlots) {
+            scheduleRestart(slot, 1); // Baru aja gagal, langsung mulai dari backoff
+        }
+
+        if (live.get() == 0) {
+            available = false;
+            System.err.println("⚠️ No yt-dlp worker could start (" + python + "), using one process per call"
+                    + " (retrying in background)");
+            return;
+        }
+        System.out.println("✅ yt-dlp worker pool started: " + live.get() + "/" + size + " workers"
+                + (stub ? " (stub extractor)" : ""));
+    }
+
+    /**
+     * Script worker di-extract dari resources (python ga bisa baca dari dalam jar), sekali per isi
+     */
+    private List<String> buildCommand() throws IOException {
+        Path worker = null;
+        List<String> dirs = new ArrayList<>();
+        for (String script : SCRIPTS) {
+            Path extracted = ResourceExtractor.extract("/ytdlp/" + script, false);
+            if (extracted == null) {
+                throw new FileNotFoundException("/ytdlp/" + script + " not found in resources");
+            }
+            if (worker == null) {
+                worker = extracted;
+            }
+            dirs.add(extracted.toAbsolutePath().getParent().toString());
+        }
+        pythonPath = String.join(File.pathSeparator, dirs);
+
+        List<String> cmd = new ArrayList<>();
+        cmd.add(python);
+        cmd.add("-u");
+        cmd.add(worker.toAbsolutePath().toString());
+        if (stub) {
+            cmd.add("--stub");
+        }
+        return cmd;
+    }
+
+    /**
+     * Balikin worker ke pool; yang rusak dibuang dan diganti proses baru di thread health-check,
+     * jadi caller bisa langsung fallback tanpa nunggu startup worker baru
+     */
+    private void release(Worker worker, boolean healthy) {
+        if (healthy && worker.alive && !closed) {
+            idle.offer(worker);
+            return;
+        }
+
+        worker.destroy();
+        live.decrementAndGet();
+        if (closed) {
+            return;
+        }
+
+        scheduleRestart(worker.slot, 0);
+    }
+
+    /**
+     * Start ulang slot di thread health-check. attempt 0 langsung jalan, sisanya nunggu
+     * backoff eksponensial (dibatasi RESTART_BACKOFF_MAX_MILLIS)
+     */
+    private void scheduleRestart(int slot, int attempt) {
+        if (closed) {
+            return;
+        }
+        long delay = attempt == 0 ? 0 : restartBackoff(attempt);
+        try {
+            healthChecker.schedule(() -> restart(slot, attempt), delay, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // Pool lagi shutdown
+        }
+    }
+
+    private static long restartBackoff(int attempt) {
+        int shift = Math.min(attempt - 1, 20);
+        return Math.min(RESTART_BACKOFF_MAX_MILLIS, RESTART_BACKOFF_MIN_MILLIS << shift);
+    }
+
+    // Cuma jalan di thread health-check: satu-satunya yang nambah live & ngubah available
+    private void restart(int slot, int attempt) {
+        if (closed) {
+            return;
+        }
+        restarts.incrementAndGet();
+        try {
+            Worker replacement = new Worker(slot);
+            if (replacement.ping(startTimeoutMillis) && !closed) {
+                live.incrementAndGet();
+                idle.offer(replacement);
+                if (!available) {
+                    available = true;
+                    System.out.println("✅ yt-dlp worker pool available again");
+                }
+                System.out.println("🔄 yt-dlp worker " + slot + " restarted");
+                return;
+            }
+            replacement.destroy();
+        } catch (IOException e) {
+            System.err.println("⚠️ Failed to restart yt-dlp worker: " + e.getMessage());
+        }
+
+        if (closed) {
+            return;
+        }
+        if (live.get() <= 0 && available) {
+            available = false;
+            System.err.println("⚠️ All yt-dlp workers down, using one process per call");
+        }
+        System.err.println("⚠️ yt-dlp worker " + slot + " restart failed, retry in "
+                + restartBackoff(attempt + 1) / 1000 + "s");
+        scheduleRestart(slot, attempt + 1);
+    }
+
+    private void checkIdleWorkers() {
+        List<Worker> batch = new ArrayList<>();
+        idle.drainTo(batch);
+        for (Worker worker : batch) {
+            release(worker, worker.ping(PING_TIMEOUT_MILLIS));
+        }
+    }
+
+    public synchronized void shutdown() {
+        closed = true;
+        if (healthChecker != null) {
+            healthChecker.shutdown();
+        }
+        Worker worker;
+        while ((worker = idle.poll()) != null) {
+            worker.destroy();
+        }
+        if (started) {
+            System.out.println("📊 yt-dlp worker pool stats: " + this);
+        }
+    }
+
+    private static boolean isWindows() {
+        return System.getProperty("os.name", "").toLowerCase().contains("win");
+    }
+
+    @Override
+    public String toString() {
+        return String.format("live=%d/%d, idle=%d, requests=%d, failures=%d, restarts=%d",
+                live.get(), size, idle.size(), requests.get(), failures.get(), restarts.get());
+    }
+
+    /**
+     * Extractor-nya jalan tapi gagal (video ga ada, region lock, dll)
+     */
+    public static class ExtractionException extends IOException {
+        public ExtractionException(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * Satu proses worker. Thread reader ngerutein response ke future sesuai id;
+     * response yang datang setelah timeout dibuang.
+     */
+    private class Worker {
+        final int slot;
+        final Process process;
+        final BufferedWriter stdin;
+        final Map<String, CompletableFuture<String[]>> pending = new ConcurrentHashMap<>();
+        volatile boolean alive = true;
+
+        Worker(int slot) throws IOException {
+            this.slot = slot;
+            ProcessBuilder pb = new ProcessBuilder(command);
+            pb.redirectError(ProcessBuilder.Redirect.INHERIT);
+            // Pipe di Windows defaultnya cp1252; judul non-Latin bikin UnicodeEncodeError di worker
+            pb.environment().put("PYTHONIOENCODING", "utf-8");
+            pb.environment().put("PYTHONPATH", pythonPath);
+            this.process = pb.start();
+            this.stdin = new BufferedWriter(new OutputStreamWriter(process.getOutputStream(), StandardCharsets.UTF_8));
+
+            Thread reader = new Thread(this::readLoop, "ytdlp-worker-" + slot);
+            reader.setDaemon(true);
+            reader.start();
+        }
+
+        private void readLoop() {
+            try (BufferedReader out = new BufferedReader(
+                    new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = out.readLine()) != null) {
+                    String[] response = line.split("\t", 3);
+                    CompletableFuture<String[]> future = pending.remove(response[0]);
+                    if (future != null) {
+                        future.complete(response);
+                    }
+                }
+            } catch (IOException ignored) {
+                // Stream ketutup = proses mati, ditangani di bawah
+            }
+
+            alive = false;
+            IOException exited = new IOException("yt-dlp worker " + slot + " exited");
+            pending.values().forEach(future -> future.completeExceptionally(exited));
+            pending.clear();
+        }
+
+        String[] call(String op, String videoId, long timeoutMillis) throws IOException {
+            String id = Long.toString(requestIds.incrementAndGet());
+            CompletableFuture<String[]> future = new CompletableFuture<>();
+            pending.put(id, future);
+            try {
+                if (!alive) {
+                    throw new IOException("yt-dlp worker " + slot + " is not running");
+                }
+                synchronized (stdin) {
+                    stdin.write(id + "\t" + op + "\t" + (videoId == null ? "" : videoId));
+                    stdin.newLine();
+                    stdin.flush();
+                }
+                return future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                alive = false; // Worker nyangkut, dibuang waktu release
+                throw new IOException("yt-dlp worker " + slot + " timed out after " + timeoutMillis + " ms");
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                throw cause instanceof IOException ? (IOException) cause : new IOException(cause);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                alive = false; // Response-nya bisa nyasar ke request berikutnya kalau dipakai lagi
+                throw new IOException("Interrupted while waiting for yt-dlp worker", e);
+            } finally {
+                pending.remove(id);
+            }
+        }
+
+        boolean ping(long timeoutMillis) {
+            try {
+                String[] response = call("PING", "", timeoutMillis);
+                return response.length > 1 && "PONG".equals(response[1]);
+            } catch (IOException e) {
+                return false;
+            }
+        }
+
+        void destroy() {
+            alive = false;
+            try {
+                stdin.close(); // Worker keluar sendiri waktu stdin EOF
+            } catch (IOException ignored) {
+            }
+            process.destroy();
+        }
+    }
+}
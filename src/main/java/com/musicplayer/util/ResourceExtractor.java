@@ -0,0 +1,131 @@
+package com.musicplayer.util;
+
+import java.io.*;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Extract file dari resources (jar) ke cache dir, cukup sekali per isi resource.
+ * Dir: extract.cache.dir/<16 hex pertama SHA-256 resource>/. Hash-nya dari <resource>.sha256
+ * kalau dibundle, kalau ga dihitung dari isi resource; jadi resource yang berubah (walau
+ * ukurannya sama) otomatis dapet dir baru.
+ *
+ * File yang udah ada di dir itu di-hash ulang sekali per proses sebelum path-nya dibalikin
+ * (file rusak / diubah di luar app ketahuan), panggilan berikutnya langsung balik.
+ * Extract: copy ke file temp sambil di-hash, dicocokin ke hash resource, lalu di-move atomic
+ * ke nama akhir (aman kalau dua instance start bareng).
+ */
+public class ResourceExtractor {
+
+    private static final int DIR_HASH_LENGTH = 16;
+
+    // Resource -> file hasil extract yang hash-nya udah dicek di proses ini
+    private static final Map<String, Path> verified = new HashMap<>();
+
+    /**
+     * Path file hasil extract, null kalau resource-nya ga ada di classpath
+     */
+    public static Path extract(String resource, boolean executable) throws IOException {
+        URL url = ResourceExtractor.class.getResource(resource);
+        if (url == null) {
+            return null;
+        }
+
+        String name = resource.substring(resource.lastIndexOf('/') + 1);
+
+        synchronized (ResourceExtractor.class) {
+            Path checked = verified.get(resource);
+            if (checked != null) {
+                return checked;
+            }
+
+            String expected = expectedSha256(resource);
+            if (expected == null) {
+                expected = sha256Of(url.openStream());
+            }
+            Path dir = Paths.get(ConfigLoader.get("extract.cache.dir", "data/bin"),
+                    expected.substring(0, Math.min(DIR_HASH_LENGTH, expected.length())));
+            Path target = dir.resolve(name);
+
+            if (Files.isRegularFile(target) && expected.equals(sha256Of(Files.newInputStream(target)))) {
+                verified.put(resource, target);
+                return target;
+            }
+
+            Files.createDirectories(dir);
+            Path temp = Files.createTempFile(dir, name, ".tmp");
+            try {
+                String sha256;
+                try (DigestInputStream in = new DigestInputStream(url.openStream(), sha256Digest())) {
+                    Files.copy(in, temp, StandardCopyOption.REPLACE_EXISTING);
+                    sha256 = toHex(in.getMessageDigest().digest());
+                }
+
+                if (!expected.equals(sha256)) {
+                    throw new IOException("Checksum mismatch for " + resource + ": " + sha256 + " != " + expected);
+                }
+                if (executable) {
+                    temp.toFile().setExecutable(true);
+                }
+
+                moveAtomically(temp, target);
+                verified.put(resource, target);
+                System.out.println("✅ Extracted " + resource + " to " + target.toAbsolutePath());
+                return target;
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        }
+    }
+
+    /**
+     * Hash dari <resource>.sha256 (format sha256sum: "<hex>  <nama>"), null kalau ga dibundle
+     */
+    private static String expectedSha256(String resource) throws IOException {
+        try (InputStream in = ResourceExtractor.class.getResourceAsStream(resource + ".sha256")) {
+            if (in == null) {
+                return null;
+            }
+            String content = new String(in.readAllBytes(), StandardCharsets.UTF_8).trim();
+            return content.isEmpty() ? null : content.split("\\s+")[0].toLowerCase(Locale.ROOT);
+        }
+    }
+
+    private static String sha256Of(InputStream stream) throws IOException {
+        try (DigestInputStream in = new DigestInputStream(stream, sha256Digest())) {
+            in.transferTo(OutputStream.nullOutputStream());
+            return toHex(in.getMessageDigest().digest());
+        }
+    }
+
+    private static void moveAtomically(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static MessageDigest sha256Digest() throws IOException {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException("SHA-256 not available", e);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+}
@@ -0,0 +1,36 @@
+package com.musicplayer.util;
+
+import java.util.Locale;
+
+/**
+ * Normalisasi teks metadata track buat dedup (artist + title)
+ */
+public class TrackNormalizer {
+
+    /**
+     * Rapihin teks buat disimpan: trim dan spasi berturut-turut jadi satu, case dipertahankan
+     */
+    public static String clean(String value) {
+        if (value == null) {
+            return null;
+        }
+        return value.trim().replaceAll("\\s+", " ");
+    }
+
+    /**
+     * Lowercase, trim, spasi berturut-turut jadi satu. null jadi string kosong
+     */
+    public static String normalize(String value) {
+        if (value == null) {
+            return "";
+        }
+        return value.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Key dedup: "artist|title" yang udah dinormalisasi
+     */
+    public static String dedupKey(String artist, String title) {
+        return normalize(artist) + "|" + normalize(title);
+    }
+}
@@ -26,6 +26,7 @@ public class NowPlayingPanel extends JPanel {
     private JButton nextButton;
     private JButton shuffleButton;
     private JButton repeatButton;
+    private JButton radioButton;
 
     private boolean isDraggingSeekBar = false;
     private Timer updateTimer;
@@ -106,7 +107,7 @@ public class NowPlayingPanel extends JPanel {
         add(seekPanel, "wrap, growx, width 60%");
 
         // Playback controls
-        JPanel controlsPanel = new JPanel(new MigLayout("insets 0", "[]10[]10[]10[]10[]", ""));
+        JPanel controlsPanel = new JPanel(new MigLayout("insets 0", "[]10[]10[]10[]10[]10[]", ""));
         controlsPanel.setOpaque(false);
 
         // Ganti tombol-tombol text dengan ikon dari IconLoader
@@ -156,6 +157,17 @@ public class NowPlayingPanel extends JPanel {
         repeatButton.addActionListener(e -> toggleRepeat());
         controlsPanel.add(repeatButton);
 
+        radioButton = new JButton("Radio");
+        radioButton.setToolTipText("Radio: keep playing recommended tracks");
+        radioButton.setFont(new Font("Segoe UI", Font.BOLD, 12));
+        radioButton.setFocusPainted(false);
+        radioButton.setBorderPainted(false);
+        radioButton.setContentAreaFilled(false);
+        radioButton.setForeground(Color.WHITE);
+        radioButton.setCursor(new Cursor(Cursor.HAND_CURSOR));
+        radioButton.addActionListener(e -> toggleRadio());
+        controlsPanel.add(radioButton);
+
         add(controlsPanel, "center");
     }
 
@@ -213,6 +225,7 @@ public class NowPlayingPanel extends JPanel {
         // Update shuffle/repeat buttons
         updateShuffleButton();
         updateRepeatButton();
+        updateRadioButton();
     }
 
     public void updateNowPlaying(Track track) {
@@ -255,6 +268,11 @@ public class NowPlayingPanel extends JPanel {
         updateRepeatButton();
     }
 
+    private void toggleRadio() {
+        controller.toggleRadio();
+        updateRadioButton();
+    }
+
     private void updateShuffleButton() {
         shuffleButton.setIcon(IconLoader.loadButtonIcon(
                 controller.isShuffleEnabled()
@@ -271,4 +289,12 @@ public class NowPlayingPanel extends JPanel {
             repeatButton.setForeground(Color.WHITE);
         }
     }
+
+    private void updateRadioButton() {
+        if (controller.isRadioEnabled()) {
+            radioButton.setForeground(new Color(100, 180, 255));
+        } else {
+            radioButton.setForeground(Color.WHITE);
+        }
+    }
 }
\ No newline at end of file
@@ -3,6 +3,7 @@ package com.musicplayer.view;
 import com.musicplayer.controller.MusicPlayerController;
 import com.musicplayer.model.Recommendation;
 import com.musicplayer.model.Track;
+import com.musicplayer.service.RecommendationScheduler;
 import com.musicplayer.util.IconLoader;
 import com.musicplayer.util.ImageUtils;
 import net.miginfocom.swing.MigLayout;
@@ -57,7 +58,38 @@ public class RecommendationPanel extends JPanel {
 
         add(tabbedPane, BorderLayout.CENTER);
 
-        loadRecommendations();
+        // Hasil baru datang dari scheduler (background). Listener dipasang dulu
+        // biar refresh yang selesai duluan ga kelewat.
+        controller.addRecommendationListener(new RecommendationScheduler.SnapshotListener() {
+            @Override
+            public void onSnapshot(RecommendationScheduler.Snapshot fresh) {
+                SwingUtilities.invokeLater(() -> {
+                    showSnapshot(fresh);
+                    setLoading(false);
+                });
+            }
+
+            @Override
+            public void onRefreshFailed(String message) {
+                SwingUtilities.invokeLater(() -> {
+                    setLoading(false);
+                    JOptionPane.showMessageDialog(
+                            RecommendationPanel.this,
+                            "Error loading recommendations: " + message,
+                            "Error",
+                            JOptionPane.ERROR_MESSAGE
+                    );
+                });
+            }
+        });
+
+        // Tampilkan snapshot terakhir langsung
+        RecommendationScheduler.Snapshot snapshot = controller.getRecommendationSnapshot();
+        if (snapshot != null) {
+            showSnapshot(snapshot);
+        } else {
+            setLoading(true);
+        }
     }
 
     private JPanel createHeaderPanel() {
@@ -80,41 +112,20 @@ public class RecommendationPanel extends JPanel {
     }
 
     private void loadRecommendations() {
-        generateButton.setEnabled(false);
-        generateButton.setText("Loading...");
-
-        SwingWorker<Void, Void> worker = new SwingWorker<>() {
-            List<Recommendation> dailyMix;
-            List<Recommendation> similar;
+        setLoading(true);
+        controller.refreshRecommendations();
+    }
 
-            @Override
-            protected Void doInBackground() throws Exception {
-                dailyMix = controller.generateDailyMix(20);
-                similar = controller.getSimilarToRecent(15);
-                return null;
-            }
+    private void setLoading(boolean loading) {
+        generateButton.setEnabled(!loading);
+        generateButton.setText(loading ? "Loading..." : "Refresh");
+    }
 
-            @Override
-            protected void done() {
-                try {
-                    currentDailyMix = dailyMix;
-                    currentSimilar = similar;
-                    displayDailyMix(dailyMix);
-                    displaySimilarSongs(similar);
-                } catch (Exception e) {
-                    JOptionPane.showMessageDialog(
-                            RecommendationPanel.this,
-                            "Error loading recommendations: " + e.getMessage(),
-                            "Error",
-                            JOptionPane.ERROR_MESSAGE
-                    );
-                } finally {
-                    generateButton.setEnabled(true);
-                    generateButton.setText("Refresh");
-                }
-            }
-        };
-        worker.execute();
+    private void showSnapshot(RecommendationScheduler.Snapshot snapshot) {
+        currentDailyMix = snapshot.getDailyMix();
+        currentSimilar = snapshot.getSimilar();
+        displayDailyMix(currentDailyMix);
+        displaySimilarSongs(currentSimilar);
     }
 
     private void displayDailyMix(List<Recommendation> recommendations) {
@@ -0,0 +1,42 @@
+"""
+Stub extractor buat worker.py --stub: data palsu deterministik, tanpa network / modul yt_dlp.
+Buat ngetes YtDlpWorkerPool offline (ytdlp.worker.stub=true).
+
+videoId khusus:
+    fail...  -> extractor error (worker tetap hidup, response ERR)
+    slow...  -> tidur 120 detik (ngetes timeout per-request)
+    crash... -> proses keluar (ngetes restart-on-crash)
+"""
+
+import os
+import time
+
+STREAM_TTL_SECONDS = 6 * 3600
+
+
+def extract(video_id):
+    if video_id.startswith("fail"):
+        raise RuntimeError("stub: video unavailable: " + video_id)
+    if video_id.startswith("slow"):
+        time.sleep(120)
+    if video_id.startswith("crash"):
+        os._exit(3)
+
+    expire = int(time.time()) + STREAM_TTL_SECONDS
+    return {
+        "id": video_id,
+        "title": "Stub Title " + video_id,
+        "artist": "Stub Artist",
+        "uploader": "Stub Artist",
+        "album": "Stub Album",
+        "duration": 180,
+        "genre": "Pop",
+        "categories": ["Music"],
+        "tags": ["stub", "pop"],
+        "description": "Offline stub track",
+        "url": "https://stub.invalid/videoplayback?id=" + video_id + "&expire=" + str(expire),
+    }
+
+
+def sanitize(info):
+    return info
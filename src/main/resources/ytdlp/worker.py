@@ -0,0 +1,96 @@
+#!/usr/bin/env python3
+"""
+Worker yt-dlp yang hidup terus, dipakai YtDlpWorkerPool (Java).
+
+Protokol per baris (UTF-8, dipisah tab) lewat stdin/stdout:
+    request:  <id>\t<op>\t<videoId>      op = URL | INFO | PING | QUIT
+    response: <id>\t<status>\t<payload>  status = OK | ERR | PONG
+
+URL  -> payload = stream URL bestaudio (sama kayak `yt-dlp -f bestaudio --get-url`)
+INFO -> payload = JSON satu baris (sama kayak `yt-dlp --dump-json`)
+
+Jalankan dengan --stub buat pakai stub_extractor.py (offline, tanpa modul yt_dlp).
+Keluar waktu stdin ditutup (JVM mati) atau dapat QUIT.
+"""
+
+import json
+import sys
+
+WATCH_URL = "https://music.youtube.com/watch?v="
+
+
+def load_extractor(stub):
+    if stub:
+        import stub_extractor
+        return stub_extractor.extract, stub_extractor.sanitize
+
+    import yt_dlp
+
+    ydl = yt_dlp.YoutubeDL({
+        "format": "bestaudio",
+        "quiet": True,
+        "no_warnings": True,
+        "noplaylist": True,
+        "skip_download": True,
+    })
+
+    def extract(video_id):
+        return ydl.extract_info(WATCH_URL + video_id, download=False)
+
+    return extract, ydl.sanitize_info
+
+
+def stream_url(info):
+    if info.get("url"):
+        return info["url"]
+    for fmt in info.get("requested_formats") or []:
+        if fmt.get("url"):
+            return fmt["url"]
+    raise ValueError("no stream url in extractor result")
+
+
+def one_line(text):
+    return str(text).replace("\t", " ").replace("\r", " ").replace("\n", " ")
+
+
+def main():
+    stub = "--stub" in sys.argv[1:]
+
+    # Protokol selalu UTF-8, apapun locale-nya (pipe di Windows defaultnya cp1252)
+    sys.stdin.reconfigure(encoding="utf-8")
+    sys.stdout.reconfigure(encoding="utf-8")
+
+    # stdout khusus protokol; print nyasar (dari yt-dlp dkk) dibuang ke stderr
+    out = sys.stdout
+    sys.stdout = sys.stderr
+
+    def reply(request_id, status, payload=""):
+        out.write(request_id + "\t" + status + "\t" + payload + "\n")
+        out.flush()
+
+    extract, sanitize = load_extractor(stub)
+
+    for line in sys.stdin:
+        parts = line.rstrip("\r\n").split("\t")
+        if len(parts) < 2:
+            continue
+        request_id, op = parts[0], parts[1]
+        video_id = parts[2] if len(parts) > 2 else ""
+
+        try:
+            if op == "PING":
+                reply(request_id, "PONG")
+            elif op == "URL":
+                reply(request_id, "OK", one_line(stream_url(extract(video_id))))
+            elif op == "INFO":
+                reply(request_id, "OK", json.dumps(sanitize(extract(video_id)), ensure_ascii=False))
+            elif op == "QUIT":
+                break
+            else:
+                reply(request_id, "ERR", "unknown op " + one_line(op))
+        except Exception as e:  # satu request gagal, worker tetap hidup
+            reply(request_id, "ERR", one_line(e) or type(e).__name__)
+
+
+if __name__ == "__main__":
+    main()